@@ -0,0 +1,81 @@
+package uima.sandbox.lexer;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * The documents and banks of the benchmarks, built from the test resources.
+ *
+ * Documents of any size repeat the French corpus. Banks of any size add
+ * compound segments, taken from the word pairs of the corpus, to the
+ * French bank.
+ */
+public final class Corpus {
+
+	public static final Path RES = Paths.get("src", "test", "resources");
+	public static final Path DOCUMENT = RES.resolve("docs").resolve("we-fr-100k.txt");
+	public static final Path BANK = RES.resolve("bank").resolve("french-segment-bank.xml");
+	public static final Path TYPE_SYSTEM = RES.resolve("TermSuite_TS.xml");
+
+	public static final String TYPE = "fr.univnantes.termsuite.types.WordAnnotation";
+
+	private Corpus() {
+	}
+
+	/**
+	 * @param kiloChars the size of the document in thousands of chars
+	 * @return the French corpus repeated up to the size
+	 */
+	public static String text(int kiloChars) throws IOException {
+		String text = new String(Files.readAllBytes(DOCUMENT), StandardCharsets.UTF_8);
+		StringBuilder builder = new StringBuilder(kiloChars * 1000);
+		while (builder.length() < kiloChars * 1000) {
+			builder.append(text, 0, Math.min(text.length(), kiloChars * 1000 - builder.length()));
+		}
+		return builder.toString();
+	}
+
+	/**
+	 * @param compounds the number of compound segments added to the French bank
+	 * @return the XML content of the bank
+	 */
+	public static byte[] bank(int compounds) throws IOException {
+		String xml = new String(Files.readAllBytes(BANK), StandardCharsets.UTF_8);
+		StringBuilder segments = new StringBuilder();
+		for (String compound : compounds(compounds)) {
+			segments.append("  <segment type=\"compound\" reverse=\"false\" value=\"")
+				.append(compound.replace("&", "&amp;").replace("\"", "&quot;").replace("<", "&lt;"))
+				.append("\" />\n");
+		}
+		int end = xml.lastIndexOf("</segments>");
+		return (xml.substring(0, end) + segments + xml.substring(end)).getBytes(StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * @param compounds the number of compound segments added to the French bank
+	 * @return a temporary file holding the XML content of the bank
+	 */
+	public static Path bankFile(int compounds) throws IOException {
+		Path file = Files.createTempFile("segment-bank-" + compounds + "-", ".xml");
+		file.toFile().deleteOnExit();
+		return Files.write(file, bank(compounds));
+	}
+
+	private static Set<String> compounds(int count) throws IOException {
+		Set<String> compounds = new LinkedHashSet<>();
+		String[] words = text(100).split("\\s+");
+		for (int index = 1; index < words.length && compounds.size() < count; index++) {
+			compounds.add(words[index - 1] + " " + words[index]);
+		}
+		for (int index = 0; compounds.size() < count; index++) {
+			compounds.add(words[index % words.length] + " " + index);
+		}
+		return compounds;
+	}
+
+}
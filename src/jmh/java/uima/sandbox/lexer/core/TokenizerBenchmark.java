@@ -0,0 +1,117 @@
+package uima.sandbox.lexer.core;
+
+import java.io.ByteArrayInputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import uima.sandbox.lexer.Corpus;
+import uima.sandbox.lexer.models.CharTree;
+import uima.sandbox.lexer.models.CompoundAutomaton;
+import uima.sandbox.lexer.models.Spans;
+import uima.sandbox.lexer.resources.SegmentBankResource;
+
+/**
+ * Times each phase of the tokenization on its own, over the offsets
+ * computed by the previous phases, then all of them in a single pass.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TokenizerBenchmark {
+
+	@Param({ "10", "100", "1000" })
+	public int kiloChars;
+
+	@Param({ "0", "10000" })
+	public int compounds;
+
+	private String text;
+
+	private CharTree prefixes;
+
+	private CharTree suffixes;
+
+	private CompoundAutomaton automaton;
+
+	private Splitter splitter;
+
+	private Spans tokens;
+
+	private Spans splittedTokens;
+
+	private Spans words;
+
+	private Spans spans;
+
+	@Setup
+	public void setup() throws Exception {
+		this.text = Corpus.text(this.kiloChars);
+		SegmentBankResource bank = new SegmentBankResource();
+		bank.load(new ByteArrayInputStream(Corpus.bank(this.compounds)));
+		this.prefixes = bank.getCharTree("initial");
+		this.suffixes = bank.getCharTree("final");
+		this.automaton = bank.getAutomaton("compound");
+		this.splitter = new Splitter(this.prefixes, this.suffixes);
+		this.tokens = new Spans();
+		new Tokenizer(null, null, null).tokenize(this.text, this.tokens);
+		this.splittedTokens = new Spans();
+		for (int index = 0; index < this.tokens.size(); index++) {
+			this.splitter.split(this.text, this.tokens.begin(index), this.tokens.end(index), this.splittedTokens);
+		}
+		this.words = new Spans();
+		this.automaton.match(this.text, this.words);
+		this.spans = new Spans(this.splittedTokens.size() + this.words.size());
+	}
+
+	@Benchmark
+	public int tokenize() {
+		this.spans.clear();
+		new Tokenizer(null, null, null).tokenize(this.text, this.spans);
+		return this.spans.size();
+	}
+
+	@Benchmark
+	public int split() {
+		this.spans.clear();
+		for (int index = 0; index < this.tokens.size(); index++) {
+			this.splitter.split(this.text, this.tokens.begin(index), this.tokens.end(index), this.spans);
+		}
+		return this.spans.size();
+	}
+
+	@Benchmark
+	public int merge() {
+		this.spans.clear();
+		this.automaton.match(this.text, this.spans);
+		return this.spans.size();
+	}
+
+	@Benchmark
+	public int clean() {
+		this.spans.clear();
+		Tokenizer.clean(this.splittedTokens, this.words, this.spans);
+		return this.spans.size();
+	}
+
+	@Benchmark
+	public int fused() {
+		this.spans.clear();
+		new Tokenizer(this.prefixes, this.suffixes, this.automaton).tokenize(this.text, this.spans);
+		return this.spans.size();
+	}
+
+}
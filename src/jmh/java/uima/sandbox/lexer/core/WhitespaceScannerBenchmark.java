@@ -0,0 +1,86 @@
+package uima.sandbox.lexer.core;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import uima.sandbox.lexer.Corpus;
+import uima.sandbox.lexer.models.Spans;
+
+/**
+ * Times the delimitation of the whitespace-separated tokens of a document
+ * with the scalar and the vector scanners. The vector scanner is only
+ * used when the benchmarks run on Java 17 or later with the
+ * jdk.incubator.vector module added, the scalar one otherwise.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WhitespaceScannerBenchmark {
+
+	@Param({ "100", "1000" })
+	public int kiloChars;
+
+	private String text;
+
+	private char[] chars;
+
+	@Setup
+	public void setup() throws Exception {
+		this.text = Corpus.text(this.kiloChars);
+		this.chars = this.text.toCharArray();
+	}
+
+	private Spans spans = new Spans();
+
+	private int delimit(WhitespaceScanner scanner, char[] chars) {
+		this.spans.clear();
+		scanner.scan(chars, 0, chars.length, this.spans);
+		return this.spans.size();
+	}
+
+	@Benchmark
+	public int charAt() {
+		this.spans.clear();
+		new Tokenizer(null, null, null).tokenize(this.text, this.spans);
+		return this.spans.size();
+	}
+
+	@Benchmark
+	public int scalar() {
+		return this.delimit(WhitespaceScanner.scalar(), this.chars);
+	}
+
+	@Benchmark
+	public int vector() {
+		return this.delimit(WhitespaceScanner.getInstance(), this.chars);
+	}
+
+	@Benchmark
+	public int scalarOverText() {
+		this.spans.clear();
+		WhitespaceScanner.scalar().scan(this.text, 0, this.text.length(), this.spans);
+		return this.spans.size();
+	}
+
+	@Benchmark
+	public int vectorOverText() {
+		this.spans.clear();
+		WhitespaceScanner.getInstance().scan(this.text, 0, this.text.length(), this.spans);
+		return this.spans.size();
+	}
+
+}
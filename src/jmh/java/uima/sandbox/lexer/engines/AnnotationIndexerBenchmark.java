@@ -0,0 +1,139 @@
+package uima.sandbox.lexer.engines;
+
+import java.io.ByteArrayInputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.uima.cas.CAS;
+import org.apache.uima.cas.Type;
+import org.apache.uima.fit.factory.JCasFactory;
+import org.apache.uima.fit.factory.TypeSystemDescriptionFactory;
+import org.apache.uima.jcas.JCas;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import uima.sandbox.lexer.Corpus;
+import uima.sandbox.lexer.core.Splitter;
+import uima.sandbox.lexer.core.WhitespaceScanner;
+import uima.sandbox.lexer.models.Spans;
+import uima.sandbox.lexer.resources.SegmentBankResource;
+
+/**
+ * Times the creation and indexing of the annotations alone: one feature
+ * structure at a time, tokens then compound words as the passes find
+ * them, against the bulk low-level path fed in index order.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AnnotationIndexerBenchmark {
+
+	@Param({ "100", "1000" })
+	public int kiloChars;
+
+	@Param({ "0", "10000" })
+	public int compounds;
+
+	private String text;
+
+	private Spans tokens;
+
+	private Spans words;
+
+	private Spans sorted;
+
+	private JCas cas;
+
+	private Type type;
+
+	@Setup
+	public void setup() throws Exception {
+		this.text = Corpus.text(this.kiloChars);
+		SegmentBankResource bank = new SegmentBankResource();
+		bank.load(new ByteArrayInputStream(Corpus.bank(this.compounds)));
+		Spans delimited = new Spans();
+		WhitespaceScanner.getInstance().scan(this.text, 0, this.text.length(), delimited);
+		Splitter splitter = new Splitter(bank.getCharTree("initial"), bank.getCharTree("final"),
+				bank.getCharTree("abbreviation"));
+		this.tokens = new Spans();
+		for (int index = 0; index < delimited.size(); index++) {
+			splitter.split(this.text, delimited.begin(index), delimited.end(index), this.tokens);
+		}
+		this.words = new Spans();
+		if (bank.getAutomaton("compound") != null) {
+			bank.getAutomaton("compound").match(this.text, this.words);
+		}
+		this.sorted = merge(this.tokens, this.words);
+		this.cas = JCasFactory.createJCas(
+				TypeSystemDescriptionFactory.createTypeSystemDescriptionFromPath(Corpus.TYPE_SYSTEM.toString()));
+	}
+
+	/*
+	 * Merges two lists of spans sorted in the order of the annotation index,
+	 * begin ascending then end descending, the spans of the first list
+	 * coming before the equal ones of the second.
+	 */
+	private static Spans merge(Spans first, Spans second) {
+		Spans spans = new Spans(first.size() + second.size());
+		int left = 0;
+		int right = 0;
+		while (left < first.size() || right < second.size()) {
+			if (right == second.size() || (left < first.size()
+					&& (first.begin(left) < second.begin(right)
+					|| (first.begin(left) == second.begin(right) && first.end(left) >= second.end(right))))) {
+				spans.span(first.begin(left), first.end(left));
+				left++;
+			} else {
+				spans.span(second.begin(right), second.end(right));
+				right++;
+			}
+		}
+		return spans;
+	}
+
+	@Setup(Level.Invocation)
+	public void reset() {
+		this.cas.reset();
+		this.cas.setDocumentText(this.text);
+		this.type = this.cas.getTypeSystem().getType(Corpus.TYPE);
+	}
+
+	private void addOneByOne(Spans spans) {
+		CAS cas = this.cas.getCas();
+		for (int index = 0; index < spans.size(); index++) {
+			cas.addFsToIndexes(cas.createAnnotation(this.type, spans.begin(index), spans.end(index)));
+		}
+	}
+
+	@Benchmark
+	public JCas oneByOneInPasses() {
+		this.addOneByOne(this.tokens);
+		this.addOneByOne(this.words);
+		return this.cas;
+	}
+
+	@Benchmark
+	public JCas oneByOneSorted() {
+		this.addOneByOne(this.sorted);
+		return this.cas;
+	}
+
+	@Benchmark
+	public JCas bulk() {
+		new AnnotationIndexer(this.cas, this.type).index(this.sorted);
+		return this.cas;
+	}
+
+}
@@ -0,0 +1,91 @@
+package uima.sandbox.lexer.engines;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import uima.sandbox.lexer.Corpus;
+import uima.sandbox.lexer.models.Spans;
+import uima.sandbox.lexer.resources.SegmentBankResource;
+
+/**
+ * Measures the documents tokenized per second by a batch as the number of
+ * threads grows, 0 standing for the default executor: virtual threads
+ * where the JVM has them.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BatchTokenizerBenchmark {
+
+	private static final int DOCUMENTS = 100;
+
+	@Param({ "0", "1", "2", "4", "8" })
+	public int threads;
+
+	@Param({ "10" })
+	public int kiloChars;
+
+	private List<String> documents;
+
+	private ExecutorService executor;
+
+	private BatchTokenizer tokenizer;
+
+	@Setup
+	public void setup() throws Exception {
+		String text = Corpus.text(this.kiloChars * DOCUMENTS);
+		this.documents = new ArrayList<>();
+		for (int index = 0; index < DOCUMENTS; index++) {
+			this.documents.add(text.substring(index * this.kiloChars * 1000, (index + 1) * this.kiloChars * 1000));
+		}
+		SegmentBankResource bank = new SegmentBankResource();
+		bank.load(new ByteArrayInputStream(Corpus.bank(10000)));
+		if (this.threads == 0) {
+			this.tokenizer = new BatchTokenizer(bank);
+		} else {
+			this.executor = Executors.newFixedThreadPool(this.threads);
+			this.tokenizer = new BatchTokenizer(bank, this.executor, 4 * this.threads);
+		}
+	}
+
+	@TearDown
+	public void shutdown() {
+		this.tokenizer.close();
+		if (this.executor != null) {
+			this.executor.shutdown();
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(DOCUMENTS)
+	public void tokenize(Blackhole blackhole) {
+		Iterator<Spans> spans = this.tokenizer.tokenize(this.documents.iterator());
+		while (spans.hasNext()) {
+			blackhole.consume(spans.next());
+		}
+	}
+
+}
@@ -0,0 +1,80 @@
+package uima.sandbox.lexer.engines;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.uima.analysis_engine.AnalysisEngine;
+import org.apache.uima.fit.factory.AnalysisEngineFactory;
+import org.apache.uima.fit.factory.ExternalResourceFactory;
+import org.apache.uima.fit.factory.TypeSystemDescriptionFactory;
+import org.apache.uima.jcas.JCas;
+import org.apache.uima.resource.ExternalResourceDescription;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import uima.sandbox.lexer.Corpus;
+import uima.sandbox.lexer.resources.SegmentBank;
+import uima.sandbox.lexer.resources.SegmentBankResource;
+
+/**
+ * Times the whole analysis engine, annotations included, as configured
+ * in a pipeline.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LexerBenchmark {
+
+	@Param({ "10", "100", "1000" })
+	public int kiloChars;
+
+	@Param({ "0", "10000" })
+	public int compounds;
+
+	@Param({ "false", "true" })
+	public boolean fused;
+
+	private String text;
+
+	private AnalysisEngine engine;
+
+	private JCas cas;
+
+	@Setup
+	public void setup() throws Exception {
+		this.text = Corpus.text(this.kiloChars);
+		ExternalResourceDescription bank = ExternalResourceFactory.createExternalResourceDescription(
+				SegmentBankResource.class, Corpus.bankFile(this.compounds).toUri().toURL());
+		this.engine = AnalysisEngineFactory.createEngine(Lexer.class,
+				TypeSystemDescriptionFactory.createTypeSystemDescriptionFromPath(Corpus.TYPE_SYSTEM.toString()),
+				Lexer.PARAM_TYPE, Corpus.TYPE,
+				Lexer.PARAM_FUSED, this.fused,
+				SegmentBank.KEY_SEGMENT_BANK, bank);
+		this.cas = this.engine.newJCas();
+	}
+
+	@Setup(Level.Invocation)
+	public void reset() {
+		this.cas.reset();
+		this.cas.setDocumentText(this.text);
+	}
+
+	@Benchmark
+	public JCas process() throws Exception {
+		this.engine.process(this.cas);
+		return this.cas;
+	}
+
+}
@@ -0,0 +1,113 @@
+package uima.sandbox.lexer.models;
+
+import java.io.ByteArrayInputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import uima.sandbox.lexer.Corpus;
+import uima.sandbox.lexer.resources.SegmentBankResource;
+
+/**
+ * Times the walk of the compound trie from every offset of a document,
+ * through the boxed tree view and through the packed char trie, the
+ * latter case-sensitive, folding each char with Character.toLowerCase,
+ * or folding it through the table of the trie.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CharTreeBenchmark {
+
+	@Param({ "0", "1000", "10000" })
+	public int compounds;
+
+	private String text;
+
+	private Tree<Character> tree;
+
+	private CharTree charTree;
+
+	@Setup
+	public void setup() throws Exception {
+		this.text = Corpus.text(100);
+		SegmentBankResource bank = new SegmentBankResource();
+		bank.load(new ByteArrayInputStream(Corpus.bank(this.compounds)));
+		this.tree = bank.get("compound");
+		this.charTree = bank.getCharTree("compound");
+	}
+
+	@Benchmark
+	public int tree() {
+		int leaves = 0;
+		for (int begin = 0; begin < this.text.length(); begin++) {
+			Tree<Character> node = this.tree;
+			for (int index = begin; index < this.text.length() && node != null; index++) {
+				node = node.get(this.text.charAt(index));
+				if (node != null && node.leaf()) {
+					leaves++;
+				}
+			}
+		}
+		return leaves;
+	}
+
+	@Benchmark
+	public int charTree() {
+		int leaves = 0;
+		for (int begin = 0; begin < this.text.length(); begin++) {
+			int state = this.charTree.root();
+			for (int index = begin; index < this.text.length() && state != CharTree.NONE; index++) {
+				state = this.charTree.get(state, this.text.charAt(index));
+				if (state != CharTree.NONE && this.charTree.leaf(state)) {
+					leaves++;
+				}
+			}
+		}
+		return leaves;
+	}
+
+	@Benchmark
+	public int charTreeLowerCase() {
+		int leaves = 0;
+		for (int begin = 0; begin < this.text.length(); begin++) {
+			int state = this.charTree.root();
+			for (int index = begin; index < this.text.length() && state != CharTree.NONE; index++) {
+				state = this.charTree.get(state, Character.toLowerCase(this.text.charAt(index)));
+				if (state != CharTree.NONE && this.charTree.leaf(state)) {
+					leaves++;
+				}
+			}
+		}
+		return leaves;
+	}
+
+	@Benchmark
+	public int charTreeFolded() {
+		int leaves = 0;
+		for (int begin = 0; begin < this.text.length(); begin++) {
+			int state = this.charTree.root();
+			for (int index = begin; index < this.text.length() && state != CharTree.NONE; index++) {
+				state = this.charTree.getFolded(state, this.text.charAt(index));
+				if (state != CharTree.NONE && this.charTree.leaf(state)) {
+					leaves++;
+				}
+			}
+		}
+		return leaves;
+	}
+
+}
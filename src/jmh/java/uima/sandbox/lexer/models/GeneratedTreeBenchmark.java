@@ -0,0 +1,109 @@
+package uima.sandbox.lexer.models;
+
+import java.io.ByteArrayInputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import uima.sandbox.lexer.Corpus;
+import uima.sandbox.lexer.core.Splitter;
+import uima.sandbox.lexer.core.Tokenizer;
+import uima.sandbox.lexer.resources.SegmentBankResource;
+
+/**
+ * Compares the packed trees of a bank with the classes generated from
+ * them: splitting the tokens of a document, matching its compounds, and
+ * both in a single pass. Banks generate their trees up to
+ * {@value GeneratedTree#MAX_STATES} states, a few hundred compounds
+ * added to the French bank, while the larger sizes show why.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GeneratedTreeBenchmark {
+
+	@Param({ "0", "200", "1000", "10000" })
+	public int compounds;
+
+	@Param({ "false", "true" })
+	public boolean generated;
+
+	private String text;
+
+	private PackedTree compound;
+
+	private CharTree prefixes;
+
+	private CharTree suffixes;
+
+	private CompoundAutomaton automaton;
+
+	private Splitter splitter;
+
+	private Spans tokens;
+
+	private Spans spans;
+
+	@Setup
+	public void setup() throws Exception {
+		this.text = Corpus.text(100);
+		SegmentBankResource bank = new SegmentBankResource();
+		bank.load(new ByteArrayInputStream(Corpus.bank(this.compounds)));
+		this.compound = bank.getCharTree("compound");
+		this.prefixes = this.tree(bank.getCharTree("initial"));
+		this.suffixes = this.tree(bank.getCharTree("final"));
+		this.automaton = new CompoundAutomaton(this.compound, this.tree(this.compound));
+		this.splitter = new Splitter(this.prefixes, this.suffixes);
+		this.tokens = new Spans();
+		new Tokenizer(null, null, null).tokenize(this.text, this.tokens);
+		this.spans = new Spans(this.tokens.size() * 2);
+	}
+
+	private CharTree tree(PackedTree tree) {
+		if (!this.generated) {
+			return tree;
+		}
+		GeneratedTree generated = GeneratedTree.generate(tree);
+		if (generated == null) {
+			throw new IllegalStateException("Cannot generate a tree of " + tree.size() + " states");
+		}
+		return generated;
+	}
+
+	@Benchmark
+	public int split() {
+		this.spans.clear();
+		for (int index = 0; index < this.tokens.size(); index++) {
+			this.splitter.split(this.text, this.tokens.begin(index), this.tokens.end(index), this.spans);
+		}
+		return this.spans.size();
+	}
+
+	@Benchmark
+	public int merge() {
+		this.spans.clear();
+		this.automaton.match(this.text, this.spans);
+		return this.spans.size();
+	}
+
+	@Benchmark
+	public int fused() {
+		this.spans.clear();
+		new Tokenizer(this.prefixes, this.suffixes, this.automaton).tokenize(this.text, this.spans);
+		return this.spans.size();
+	}
+
+}
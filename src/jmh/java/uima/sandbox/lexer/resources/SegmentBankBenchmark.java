@@ -0,0 +1,86 @@
+package uima.sandbox.lexer.resources;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import uima.sandbox.lexer.Corpus;
+import uima.sandbox.lexer.models.CompoundAutomaton;
+
+/**
+ * Times the loading of a bank, bypassing the registry: compiling its XML
+ * content, reading its compiled content from the heap or from a mapped
+ * file, and building its compound automaton.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SegmentBankBenchmark {
+
+	@Param({ "0", "1000", "10000" })
+	public int compounds;
+
+	private ByteBuffer xml;
+
+	private ByteBuffer compiled;
+
+	private ByteBuffer mapped;
+
+	private CompiledSegmentBank bank;
+
+	@Setup
+	public void setup() throws Exception {
+		this.xml = ByteBuffer.wrap(Corpus.bank(this.compounds));
+		this.bank = CompiledSegmentBank.load(null, "", this.xml);
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		this.bank.storeCompiled(output);
+		this.compiled = ByteBuffer.wrap(output.toByteArray());
+		Path file = Files.createTempFile("segment-bank-", ".bin");
+		file.toFile().deleteOnExit();
+		Files.write(file, output.toByteArray());
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			this.mapped = channel.map(MapMode.READ_ONLY, 0, channel.size());
+		}
+	}
+
+	@Benchmark
+	public CompiledSegmentBank compileXml() throws Exception {
+		return CompiledSegmentBank.load(null, "", this.xml);
+	}
+
+	@Benchmark
+	public CompiledSegmentBank readCompiled() throws Exception {
+		return CompiledSegmentBank.load(null, "", this.compiled);
+	}
+
+	@Benchmark
+	public CompiledSegmentBank mapCompiled() throws Exception {
+		return CompiledSegmentBank.load(null, "", this.mapped);
+	}
+
+	@Benchmark
+	public CompoundAutomaton buildAutomaton() {
+		return new CompoundAutomaton(this.bank.getCharTree("compound"));
+	}
+
+}
@@ -0,0 +1,101 @@
+package uima.sandbox.lexer.core;
+
+/**
+ * A table of the classes of all the chars of the basic multilingual plane,
+ * computed once, so that scanners classify a char with a single lookup
+ * instead of the range and category checks of {@link Character}.
+ *
+ * Surrogates are classified as chars, the way {@link Character#isWhitespace(char)}
+ * does, hence belong to no class.
+ */
+public final class CharClasses {
+
+	public static final byte WHITESPACE = 1;
+
+	public static final byte LETTER = 2;
+
+	public static final byte DIGIT = 4;
+
+	public static final byte PUNCTUATION = 8;
+
+	public static final byte UPPERCASE = 16;
+
+	public static final byte LOWERCASE = 32;
+
+	private static final byte[] CLASSES = new byte[Character.MAX_VALUE + 1];
+
+	static {
+		for (int ch = 0; ch <= Character.MAX_VALUE; ch++) {
+			CLASSES[ch] = classify((char) ch);
+		}
+	}
+
+	private CharClasses() {
+	}
+
+	private static byte classify(char ch) {
+		int classes = 0;
+		if (Character.isWhitespace(ch)) {
+			classes |= WHITESPACE;
+		}
+		if (Character.isLetter(ch)) {
+			classes |= LETTER;
+		}
+		if (Character.isDigit(ch)) {
+			classes |= DIGIT;
+		}
+		switch (Character.getType(ch)) {
+		case Character.CONNECTOR_PUNCTUATION:
+		case Character.DASH_PUNCTUATION:
+		case Character.START_PUNCTUATION:
+		case Character.END_PUNCTUATION:
+		case Character.INITIAL_QUOTE_PUNCTUATION:
+		case Character.FINAL_QUOTE_PUNCTUATION:
+		case Character.OTHER_PUNCTUATION:
+			classes |= PUNCTUATION;
+			break;
+		default:
+			break;
+		}
+		if (Character.isUpperCase(ch)) {
+			classes |= UPPERCASE;
+		}
+		if (Character.isLowerCase(ch)) {
+			classes |= LOWERCASE;
+		}
+		return (byte) classes;
+	}
+
+	/**
+	 * @param ch the char
+	 * @return the classes of the char, or'ed together
+	 */
+	public static byte of(char ch) {
+		return CLASSES[ch];
+	}
+
+	public static boolean isWhitespace(char ch) {
+		return (CLASSES[ch] & WHITESPACE) != 0;
+	}
+
+	public static boolean isLetter(char ch) {
+		return (CLASSES[ch] & LETTER) != 0;
+	}
+
+	public static boolean isDigit(char ch) {
+		return (CLASSES[ch] & DIGIT) != 0;
+	}
+
+	public static boolean isPunctuation(char ch) {
+		return (CLASSES[ch] & PUNCTUATION) != 0;
+	}
+
+	public static boolean isUpperCase(char ch) {
+		return (CLASSES[ch] & UPPERCASE) != 0;
+	}
+
+	public static boolean isLowerCase(char ch) {
+		return (CLASSES[ch] & LOWERCASE) != 0;
+	}
+
+}
@@ -0,0 +1,148 @@
+package uima.sandbox.lexer.core;
+
+import uima.sandbox.lexer.models.CharTree;
+import uima.sandbox.lexer.models.CompoundAutomaton;
+import uima.sandbox.lexer.models.SpanDelta;
+import uima.sandbox.lexer.models.Spans;
+import uima.sandbox.lexer.resources.SegmentBank;
+
+/**
+ * Tokenizes an edited text again around the edit only, given the spans
+ * of the text before the edit.
+ *
+ * The spans of a text left of an offset do not depend on the text right
+ * of it when no span crosses the offset, the offset follows a whitespace,
+ * and the text up to the longest compound after it is unchanged: tokens
+ * never cross whitespaces, and compound matching starts afresh after a
+ * match. The window tokenized again is the edit widened to such offsets
+ * on both sides, first the nearest ones, then further as long as a span,
+ * previous or new, crosses them. Hence the cost grows with the edit and
+ * the longest compound, not with the text.
+ *
+ * A tokenizer is not thread-safe.
+ */
+public class IncrementalTokenizer {
+
+	private final Tokenizer tokenizer;
+
+	private final int longest;
+
+	/**
+	 * @param prefixes the initial segments, or null not to split tokens
+	 * @param suffixes the final segments, or null not to split tokens
+	 * @param abbreviations the abbreviation segments, or null
+	 * @param compounds the compound segments, or null not to merge tokens
+	 */
+	public IncrementalTokenizer(CharTree prefixes, CharTree suffixes, CharTree abbreviations, CompoundAutomaton compounds) {
+		this.tokenizer = new Tokenizer(prefixes, suffixes, abbreviations, compounds);
+		this.longest = compounds == null ? 0 : compounds.longest();
+	}
+
+	/**
+	 * @param bank the bank of the initial, final, abbreviation and compound
+	 * segments
+	 */
+	public IncrementalTokenizer(SegmentBank bank) {
+		this(bank.getGeneratedTree("initial"), bank.getGeneratedTree("final"), bank.getGeneratedTree("abbreviation"),
+				bank.getAutomaton("compound"));
+	}
+
+	/**
+	 * tokenizes an edited text again around an edit
+	 *
+	 * @param text the text after the edit
+	 * @param previous the spans of the text before the edit, as the
+	 * {@link Tokenizer} reports them
+	 * @param offset the offset of the edit
+	 * @param removed the number of chars removed at the offset
+	 * @param inserted the number of chars inserted at the offset
+	 * @return the change of the spans
+	 */
+	public SpanDelta retokenize(CharSequence text, Spans previous, int offset, int removed, int inserted) {
+		int shift = inserted - removed;
+		int begin = before(text, Integer.max(0, offset - this.longest));
+		for (int span = crossing(previous, begin); span >= 0; span = crossing(previous, begin)) {
+			begin = before(text, previous.begin(span));
+		}
+		// the whitespace the window ends after must be left by the edit, or
+		// the token after it may have lost its beginning
+		int end = after(text, Integer.min(text.length(), offset + inserted + 1));
+		Spans window = new Spans();
+		while (true) {
+			int span = crossing(previous, end - shift);
+			if (span >= 0) {
+				end = after(text, previous.end(span) + shift);
+				continue;
+			}
+			window.clear();
+			this.tokenizer.tokenize(text, begin, Integer.min(text.length(), end + this.longest), window);
+			span = crossing(window, end);
+			if (span >= 0) {
+				end = after(text, window.end(span));
+				continue;
+			}
+			break;
+		}
+		Spans spans = new Spans(window.size());
+		for (int index = 0; index < window.size() && window.begin(index) < end; index++) {
+			spans.span(window.begin(index), window.end(index));
+		}
+		return new SpanDelta(first(previous, begin), first(previous, end - shift), spans, shift);
+	}
+
+	/*
+	 * The nearest offset at or before another that follows a whitespace.
+	 */
+	private static int before(CharSequence text, int offset) {
+		while (offset > 0 && !CharClasses.isWhitespace(text.charAt(offset - 1))) {
+			offset--;
+		}
+		return offset;
+	}
+
+	/*
+	 * The nearest offset at or after another that follows a whitespace.
+	 */
+	private static int after(CharSequence text, int offset) {
+		while (offset > 0 && offset < text.length() && !CharClasses.isWhitespace(text.charAt(offset - 1))) {
+			offset++;
+		}
+		return offset;
+	}
+
+	/*
+	 * The span crossing an offset, if any. Reported spans never cover each
+	 * other, hence their ends ascend as their begins do.
+	 */
+	private static int crossing(Spans spans, int offset) {
+		int low = 0;
+		int high = spans.size();
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (spans.end(middle) <= offset) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low < spans.size() && spans.begin(low) < offset ? low : -1;
+	}
+
+	/*
+	 * The index of the first span starting at or after an offset.
+	 */
+	private static int first(Spans spans, int offset) {
+		int low = 0;
+		int high = spans.size();
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (spans.begin(middle) < offset) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+}
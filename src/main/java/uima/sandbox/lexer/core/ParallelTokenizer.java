@@ -0,0 +1,128 @@
+package uima.sandbox.lexer.core;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import uima.sandbox.lexer.models.CharTree;
+import uima.sandbox.lexer.models.CompoundAutomaton;
+import uima.sandbox.lexer.models.SpanHandler;
+import uima.sandbox.lexer.models.Spans;
+
+/**
+ * A tokenizer cutting large texts into chunks tokenized in parallel.
+ *
+ * Chunks are cut at whitespace chars that occur in no compound segment,
+ * so that no token and no compound word crosses a cut, and the spans of
+ * the chunks, reported in order, are the ones of the whole text.
+ *
+ * A parallel tokenizer is thread-safe.
+ */
+public class ParallelTokenizer {
+
+	private final CharTree prefixes;
+
+	private final CharTree suffixes;
+
+	private final CharTree abbreviations;
+
+	private final CompoundAutomaton compounds;
+
+	private final ForkJoinPool pool;
+
+	private final int chunkSize;
+
+	/**
+	 * @param prefixes the initial segments, or null not to split tokens
+	 * @param suffixes the final segments, or null not to split tokens
+	 * @param abbreviations the abbreviation segments, or null
+	 * @param compounds the compound segments, or null not to merge tokens
+	 * @param pool the pool tokenizing the chunks
+	 * @param chunkSize the least size of a chunk, in chars
+	 */
+	public ParallelTokenizer(CharTree prefixes, CharTree suffixes, CharTree abbreviations, CompoundAutomaton compounds,
+			ForkJoinPool pool, int chunkSize) {
+		this.prefixes = prefixes;
+		this.suffixes = suffixes;
+		this.abbreviations = abbreviations;
+		this.compounds = compounds;
+		this.pool = pool;
+		this.chunkSize = Integer.max(1, chunkSize);
+	}
+
+	/**
+	 * reports the spans of a text in the order of the annotation index
+	 *
+	 * @param text the text
+	 * @param handler the receiver of the spans
+	 * @return the number of compound words matched, covered or not
+	 */
+	public int tokenize(CharSequence text, SpanHandler handler) {
+		List<ForkJoinTask<Chunk>> chunks = new ArrayList<>();
+		int begin = 0;
+		while (begin < text.length()) {
+			int end = this.cut(text, begin + this.chunkSize);
+			Chunk chunk = new Chunk(begin, end);
+			if (end == text.length() && chunks.isEmpty()) {
+				chunk.tokenize(text);
+				chunk.report(handler);
+				return chunk.compounds;
+			}
+			chunks.add(this.pool.submit(() -> chunk.tokenize(text)));
+			begin = end;
+		}
+		int compounds = 0;
+		for (ForkJoinTask<Chunk> chunk : chunks) {
+			compounds += chunk.join().report(handler);
+		}
+		return compounds;
+	}
+
+	/*
+	 * The first safe whitespace at or after some offset, or the end of
+	 * the text.
+	 */
+	private int cut(CharSequence text, int from) {
+		for (int index = from; index < text.length(); index++) {
+			char ch = text.charAt(index);
+			if (CharClasses.isWhitespace(ch) && (this.compounds == null || this.compounds.isSeparator(ch))) {
+				return index;
+			}
+		}
+		return text.length();
+	}
+
+	private class Chunk {
+
+		private final int begin;
+
+		private final int end;
+
+		private final Spans spans;
+
+		private int compounds;
+
+		Chunk(int begin, int end) {
+			this.begin = begin;
+			this.end = end;
+			this.spans = new Spans();
+		}
+
+		Chunk tokenize(CharSequence text) {
+			Tokenizer tokenizer = new Tokenizer(prefixes, suffixes, abbreviations, ParallelTokenizer.this.compounds);
+			tokenizer.tokenize(text, this.begin, this.end, this.spans);
+			this.compounds = tokenizer.getCompoundCount();
+			return this;
+		}
+
+		int report(SpanHandler handler) {
+			for (int index = 0; index < this.spans.size(); index++) {
+				handler.span(this.spans.begin(index), this.spans.end(index));
+			}
+			return this.compounds;
+		}
+
+	}
+
+}
@@ -0,0 +1,261 @@
+package uima.sandbox.lexer.core;
+
+import java.util.Arrays;
+
+import uima.sandbox.lexer.models.CharTree;
+import uima.sandbox.lexer.models.SpanHandler;
+
+/**
+ * Splits the initial and final segments off a whitespace-delimited token,
+ * working on the offsets of the token in the text.
+ *
+ * Prefixes are peeled off from the left as long as one is found, then
+ * suffixes from the right, unless the remaining token is an abbreviation:
+ * either initials such as C.A.F., or a segment of the abbreviation lexicon.
+ * The initials are parsed once for each side, so that a token peeled one
+ * char at a time is still split in linear time. A splitter keeps the
+ * suffix cuts and the initials of the token being split, hence it is not
+ * thread-safe.
+ */
+public class Splitter {
+
+	private final CharTree prefixes;
+
+	private final CharTree suffixes;
+
+	private final CharTree abbreviations;
+
+	private int[] cuts;
+
+	private int initialsFrom;
+
+	private int initialsTo;
+
+	public Splitter(CharTree prefixes, CharTree suffixes) {
+		this(prefixes, suffixes, null);
+	}
+
+	/**
+	 * @param prefixes the initial segments
+	 * @param suffixes the final segments
+	 * @param abbreviations the abbreviation segments, or null
+	 */
+	public Splitter(CharTree prefixes, CharTree suffixes, CharTree abbreviations) {
+		this.prefixes = prefixes;
+		this.suffixes = suffixes;
+		this.abbreviations = abbreviations;
+		this.cuts = new int[8];
+	}
+
+	/**
+	 * whether a string is made of at least two initials, each one an
+	 * uppercase ASCII letter followed by lowercase ones and a dot, as
+	 * the pattern ^[A-Z][a-z]*\.([A-Z][a-z]*\.)+$ finds, a final line
+	 * terminator included.
+	 *
+	 * @param string the string
+	 * @return true if the string is an abbreviation
+	 */
+	public static boolean isAbbreviation(CharSequence string) {
+		return isInitials(string, 0, string.length());
+	}
+
+	/*
+	 * The length of the line terminator ending a string, if any.
+	 */
+	private static int terminator(CharSequence text, int begin, int end) {
+		if (end == begin) {
+			return 0;
+		}
+		switch (text.charAt(end - 1)) {
+		case '\n':
+			return end - begin > 1 && text.charAt(end - 2) == '\r' ? 2 : 1;
+		case '\r':
+		case '\u0085':
+		case '\u2028':
+		case '\u2029':
+			return 1;
+		default:
+			return 0;
+		}
+	}
+
+	private static boolean isInitials(CharSequence text, int begin, int end) {
+		end -= terminator(text, begin, end);
+		int initials = 0;
+		int index = begin;
+		while (index < end) {
+			char ch = text.charAt(index++);
+			if (ch < 'A' || ch > 'Z') {
+				return false;
+			}
+			while (index < end && (ch = text.charAt(index)) >= 'a' && ch <= 'z') {
+				index++;
+			}
+			if (index == end || text.charAt(index++) != '.') {
+				return false;
+			}
+			initials++;
+		}
+		return initials >= 2;
+	}
+
+	/*
+	 * Parses backwards the initials ending a token: the rest of the token
+	 * from an offset is made of initials if the offset is an uppercase
+	 * letter within the bounds, as uppercase letters only start initials.
+	 */
+	private void parseInitialsBefore(CharSequence text, int begin, int end) {
+		end -= terminator(text, begin, end);
+		this.initialsFrom = end;
+		this.initialsTo = begin - 1;
+		int initials = 0;
+		int index = end;
+		while (index > begin + 1 && text.charAt(index - 1) == '.') {
+			int start = index - 2;
+			char ch = text.charAt(start);
+			while (ch >= 'a' && ch <= 'z' && start > begin) {
+				ch = text.charAt(--start);
+			}
+			if (ch < 'A' || ch > 'Z') {
+				break;
+			}
+			index = start;
+			this.initialsFrom = index;
+			if (++initials == 2) {
+				this.initialsTo = index;
+			}
+		}
+	}
+
+	private boolean isAbbreviationAfter(CharSequence text, int begin, int end) {
+		if (begin >= this.initialsFrom && begin <= this.initialsTo) {
+			char ch = text.charAt(begin);
+			if (ch >= 'A' && ch <= 'Z') {
+				return true;
+			}
+		}
+		return this.isLexicalAbbreviation(text, begin, end);
+	}
+
+	/*
+	 * Parses forwards the initials starting a token: the token up to an
+	 * offset is made of initials if the offset, its line terminator
+	 * excluded, follows a dot within the bounds, as dots only end
+	 * initials.
+	 */
+	private void parseInitialsAfter(CharSequence text, int begin, int end) {
+		this.initialsFrom = end + 1;
+		this.initialsTo = begin;
+		int initials = 0;
+		int index = begin;
+		while (index < end) {
+			char ch = text.charAt(index++);
+			if (ch < 'A' || ch > 'Z') {
+				break;
+			}
+			while (index < end && (ch = text.charAt(index)) >= 'a' && ch <= 'z') {
+				index++;
+			}
+			if (index == end || text.charAt(index++) != '.') {
+				break;
+			}
+			this.initialsTo = index;
+			if (++initials == 2) {
+				this.initialsFrom = index;
+			}
+		}
+	}
+
+	private boolean isAbbreviationBefore(CharSequence text, int begin, int end) {
+		int last = end - terminator(text, begin, end);
+		if (last >= this.initialsFrom && last <= this.initialsTo && text.charAt(last - 1) == '.') {
+			return true;
+		}
+		return this.isLexicalAbbreviation(text, begin, end);
+	}
+
+	private boolean isLexicalAbbreviation(CharSequence text, int begin, int end) {
+		if (this.abbreviations == null) {
+			return false;
+		}
+		int state = this.abbreviations.root();
+		for (int index = begin; index < end && state != CharTree.NONE; index++) {
+			state = this.abbreviations.getFolded(state, text.charAt(index));
+		}
+		return state != CharTree.NONE && this.abbreviations.leaf(state);
+	}
+
+	/**
+	 * reports the spans of a token in text order: its prefixes, its
+	 * remaining core, then its suffixes.
+	 *
+	 * @param text the text
+	 * @param begin the offset of the first char of the token
+	 * @param end the offset after the last char of the token
+	 * @param handler the receiver of the spans
+	 */
+	public void split(CharSequence text, int begin, int end, SpanHandler handler) {
+		this.parseInitialsBefore(text, begin, end);
+		while (!this.isAbbreviationAfter(text, begin, end)) {
+			int prefix = this.findPrefix(text, begin, end);
+			if (prefix == CharTree.NONE) {
+				break;
+			}
+			handler.span(begin, prefix);
+			begin = prefix;
+		}
+		int count = 0;
+		int cut = end;
+		this.parseInitialsAfter(text, begin, end);
+		while (!this.isAbbreviationBefore(text, begin, cut)) {
+			int suffix = this.findSuffix(text, begin, cut);
+			if (suffix == CharTree.NONE) {
+				break;
+			}
+			if (count == this.cuts.length) {
+				this.cuts = Arrays.copyOf(this.cuts, count * 2);
+			}
+			this.cuts[count++] = suffix;
+			cut = suffix;
+		}
+		handler.span(begin, cut);
+		for (int index = count - 1; index >= 0; index--) {
+			handler.span(this.cuts[index], index == 0 ? end : this.cuts[index - 1]);
+		}
+	}
+
+	/*
+	 * The longest prefix is found in a single walk, which remembers the
+	 * last leaf it passed: the walk may go on into a deeper branch and
+	 * fail there. A prefix leaves at least one char of the token.
+	 */
+	private int findPrefix(CharSequence text, int begin, int end) {
+		int found = CharTree.NONE;
+		int state = this.prefixes.root();
+		for (int index = begin; index < end - 1; index++) {
+			state = this.prefixes.getFolded(state, text.charAt(index));
+			if (state == CharTree.NONE) {
+				break;
+			} else if (this.prefixes.leaf(state)) {
+				found = index + 1;
+			}
+		}
+		return found;
+	}
+
+	private int findSuffix(CharSequence text, int begin, int end) {
+		int found = CharTree.NONE;
+		int state = this.suffixes.root();
+		for (int index = end; index > begin + 1; index--) {
+			state = this.suffixes.getFolded(state, text.charAt(index - 1));
+			if (state == CharTree.NONE) {
+				break;
+			} else if (this.suffixes.leaf(state)) {
+				found = index - 1;
+			}
+		}
+		return found;
+	}
+
+}
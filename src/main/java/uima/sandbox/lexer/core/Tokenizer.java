@@ -0,0 +1,340 @@
+package uima.sandbox.lexer.core;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+import uima.sandbox.lexer.models.CharTree;
+import uima.sandbox.lexer.models.CompoundAutomaton;
+import uima.sandbox.lexer.models.SpanHandler;
+import uima.sandbox.lexer.models.Spans;
+import uima.sandbox.lexer.resources.SegmentBank;
+
+/**
+ * A single-pass streaming tokenizer working on plain int offsets,
+ * independent of the CAS.
+ *
+ * A single scan over the text both delimits the whitespace-separated
+ * tokens, split as soon as they end, and feeds the compound automaton.
+ * Spans are reported as soon as no later one can precede them, in the
+ * order of the annotation index, leaving out the ones covered by another
+ * span. Only the current token and the pending spans are kept, so that
+ * a stream is tokenized in constant memory whatever its length.
+ *
+ * A tokenizer is not thread-safe.
+ */
+public class Tokenizer {
+
+	private static final int BUFFER_SIZE = 8192;
+
+	private final Splitter splitter;
+
+	private final CompoundAutomaton compounds;
+
+	private int compoundCount;
+
+	/**
+	 * @param prefixes the initial segments, or null not to split tokens
+	 * @param suffixes the final segments, or null not to split tokens
+	 * @param compounds the compound segments, or null not to merge tokens
+	 */
+	public Tokenizer(CharTree prefixes, CharTree suffixes, CompoundAutomaton compounds) {
+		this(prefixes, suffixes, null, compounds);
+	}
+
+	/**
+	 * @param prefixes the initial segments, or null not to split tokens
+	 * @param suffixes the final segments, or null not to split tokens
+	 * @param abbreviations the abbreviation segments, or null
+	 * @param compounds the compound segments, or null not to merge tokens
+	 */
+	public Tokenizer(CharTree prefixes, CharTree suffixes, CharTree abbreviations, CompoundAutomaton compounds) {
+		if (prefixes != null && suffixes != null) {
+			this.splitter = new Splitter(prefixes, suffixes, abbreviations);
+		} else {
+			this.splitter = null;
+		}
+		this.compounds = compounds;
+	}
+
+	/**
+	 * @param bank the bank of the initial, final, abbreviation and compound
+	 * segments
+	 */
+	public Tokenizer(SegmentBank bank) {
+		this(bank.getGeneratedTree("initial"), bank.getGeneratedTree("final"), bank.getGeneratedTree("abbreviation"),
+				bank.getAutomaton("compound"));
+	}
+
+	public void tokenize(CharSequence text, SpanHandler handler) {
+		this.tokenize(text, 0, text.length(), handler);
+	}
+
+	public void tokenize(CharSequence text, int from, int to, SpanHandler handler) {
+		Scan scan = new Scan(text, from, handler);
+		for (int index = from; index < to; index++) {
+			scan.feed(text.charAt(index));
+		}
+		scan.close();
+	}
+
+	/**
+	 * tokenizes a stream, keeping no more chars than the longest token
+	 *
+	 * @param reader the stream of the text
+	 * @param handler the receiver of the spans
+	 * @throws IOException if the stream cannot be read
+	 */
+	public void tokenize(Reader reader, SpanHandler handler) throws IOException {
+		Window window = new Window();
+		Scan scan = new Scan(window, 0, handler);
+		char[] buffer = new char[BUFFER_SIZE];
+		int length;
+		while ((length = reader.read(buffer)) != -1) {
+			for (int index = 0; index < length; index++) {
+				window.append(buffer[index], scan.retained());
+				scan.feed(buffer[index]);
+			}
+		}
+		scan.close();
+	}
+
+	/**
+	 * @return the number of compound words matched by the last call to
+	 * tokenize, covered or not
+	 */
+	public int getCompoundCount() {
+		return this.compoundCount;
+	}
+
+	/**
+	 * merges the sorted tokens and compound words, none of them overlapping
+	 * another of its kind, into the order of the annotation index: begin
+	 * ascending then end descending. A span is dropped when a previous one
+	 * ends at or after its end, hence covers it.
+	 *
+	 * @param tokens the simple tokens
+	 * @param words the compound words
+	 * @param handler the receiver of the spans left
+	 */
+	public static void clean(Spans tokens, Spans words, SpanHandler handler) {
+		int token = 0;
+		int word = 0;
+		int last = -1;
+		while (token < tokens.size() || word < words.size()) {
+			int begin;
+			int end;
+			if (precedes(tokens, token, words, word)) {
+				begin = tokens.begin(token);
+				end = tokens.end(token);
+				token++;
+			} else {
+				begin = words.begin(word);
+				end = words.end(word);
+				word++;
+			}
+			if (end > last) {
+				handler.span(begin, end);
+				last = end;
+			}
+		}
+	}
+
+	/*
+	 * Whether the token comes first in the index, a token being dropped in
+	 * favour of an equal compound word.
+	 */
+	private static boolean precedes(Spans tokens, int token, Spans words, int word) {
+		return word == words.size() || (token < tokens.size()
+				&& (tokens.begin(token) < words.begin(word)
+				|| (tokens.begin(token) == words.begin(word) && tokens.end(token) > words.end(word))));
+	}
+
+	/**
+	 * The scan of a text, fed one char at a time.
+	 *
+	 * Tokens are known once their last char is followed by a whitespace,
+	 * compound words once the automaton has settled their start. Both are
+	 * queued until no later span can come first in the index.
+	 */
+	private class Scan {
+
+		private static final int COMPACTION = 64;
+
+		private final CharSequence text;
+
+		private final SpanHandler handler;
+
+		private final CompoundAutomaton.Matcher matcher;
+
+		private final Spans tokens;
+
+		private final Spans words;
+
+		private int token;
+
+		private int word;
+
+		private int begin;
+
+		private int offset;
+
+		private int last;
+
+		private int count;
+
+		Scan(CharSequence text, int from, SpanHandler handler) {
+			this.text = text;
+			this.handler = handler;
+			this.tokens = new Spans();
+			this.words = new Spans();
+			this.matcher = compounds == null ? null : compounds.matcher(from, (begin, end) -> {
+				this.words.span(begin, end);
+				this.count++;
+			});
+			this.begin = -1;
+			this.offset = from;
+			this.last = -1;
+		}
+
+		/*
+		 * The first offset of the text still needed.
+		 */
+		int retained() {
+			return this.begin < 0 ? this.offset : this.begin;
+		}
+
+		void feed(char ch) {
+			if (this.matcher != null) {
+				this.matcher.feed(ch);
+			}
+			if (CharClasses.isWhitespace(ch)) {
+				if (this.begin >= 0) {
+					this.split(this.begin, this.offset);
+					this.begin = -1;
+				}
+			} else if (this.begin < 0) {
+				this.begin = this.offset;
+			}
+			this.offset++;
+			this.drain(false);
+		}
+
+		void close() {
+			if (this.begin >= 0) {
+				this.split(this.begin, this.offset);
+				this.begin = -1;
+			}
+			if (this.matcher != null) {
+				this.matcher.flush();
+			}
+			this.drain(true);
+			compoundCount = this.count;
+		}
+
+		private void split(int begin, int end) {
+			if (splitter == null) {
+				this.tokens.span(begin, end);
+			} else {
+				splitter.split(this.text, begin, end, this.tokens);
+			}
+		}
+
+		/*
+		 * A queued token is final once every compound word starting at or
+		 * before it is known; a queued word once every token starting at
+		 * or before it is known.
+		 */
+		private void drain(boolean closed) {
+			int settled = closed || this.matcher == null ? Integer.MAX_VALUE : this.matcher.settled();
+			while (this.token < this.tokens.size() || this.word < this.words.size()) {
+				int begin;
+				int end;
+				if (precedes(this.tokens, this.token, this.words, this.word)) {
+					begin = this.tokens.begin(this.token);
+					if (this.word == this.words.size() && begin >= settled) {
+						break;
+					}
+					end = this.tokens.end(this.token);
+					this.token++;
+				} else {
+					begin = this.words.begin(this.word);
+					if (this.token == this.tokens.size() && !closed && begin >= this.retained()) {
+						break;
+					}
+					end = this.words.end(this.word);
+					this.word++;
+				}
+				if (end > this.last) {
+					this.handler.span(begin, end);
+					this.last = end;
+				}
+			}
+			this.token = this.compact(this.tokens, this.token);
+			this.word = this.compact(this.words, this.word);
+		}
+
+		private int compact(Spans spans, int head) {
+			if (head == spans.size()) {
+				spans.clear();
+				return 0;
+			} else if (head >= COMPACTION && head * 2 >= spans.size()) {
+				spans.drop(head);
+				return 0;
+			} else {
+				return head;
+			}
+		}
+
+	}
+
+	/**
+	 * The chars of a stream still needed by its scan, addressed by their
+	 * offset in the whole stream.
+	 */
+	private static class Window implements CharSequence {
+
+		private char[] chars = new char[BUFFER_SIZE];
+
+		private int base;
+
+		private int size;
+
+		void append(char ch, int retained) {
+			if (this.size == this.chars.length) {
+				int dropped = retained - this.base;
+				if (dropped > 0) {
+					System.arraycopy(this.chars, dropped, this.chars, 0, this.size - dropped);
+					this.base = retained;
+					this.size -= dropped;
+				}
+				if (this.size == this.chars.length) {
+					this.chars = Arrays.copyOf(this.chars, this.chars.length * 2);
+				}
+			}
+			this.chars[this.size++] = ch;
+		}
+
+		@Override
+		public int length() {
+			return this.base + this.size;
+		}
+
+		@Override
+		public char charAt(int index) {
+			return this.chars[index - this.base];
+		}
+
+		@Override
+		public CharSequence subSequence(int start, int end) {
+			return new String(this.chars, start - this.base, end - start);
+		}
+
+		@Override
+		public String toString() {
+			return new String(this.chars, 0, this.size);
+		}
+
+	}
+
+}
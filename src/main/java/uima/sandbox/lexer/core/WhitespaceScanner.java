@@ -0,0 +1,128 @@
+package uima.sandbox.lexer.core;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import uima.sandbox.lexer.models.SpanHandler;
+
+/**
+ * Delimits the runs of non-whitespace chars of a text.
+ *
+ * The instance shared by the tokenizers scans many chars at a time with the
+ * vector API when the JVM provides it, that is from Java 19, where vector
+ * masks are compiled to plain bit masks, with the jdk.incubator.vector
+ * module added. It scans one char at a time otherwise. The system property
+ * {@value #PROPERTY} set to false forces the scalar scanner.
+ */
+public abstract class WhitespaceScanner {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(WhitespaceScanner.class);
+
+	public static final String PROPERTY = "uima.sandbox.lexer.vector";
+
+	private static final String VECTOR = "uima.sandbox.lexer.core.VectorWhitespaceScanner";
+
+	private static final int VECTOR_VERSION = 19;
+
+	private static final WhitespaceScanner SCALAR = new ScalarWhitespaceScanner();
+
+	private static final WhitespaceScanner INSTANCE = load();
+
+	/**
+	 * reports the maximal runs of non-whitespace chars between two offsets
+	 *
+	 * @param chars the chars of the text
+	 * @param from the first offset to scan
+	 * @param to the offset after the last one to scan
+	 * @param handler the receiver of the runs
+	 */
+	public abstract void scan(char[] chars, int from, int to, SpanHandler handler);
+
+	/**
+	 * reports the maximal runs of non-whitespace chars of a text between
+	 * two offsets, reading the text in place: only the vector scanner
+	 * copies the chars it scans into an array
+	 *
+	 * @param text the text
+	 * @param from the first offset to scan
+	 * @param to the offset after the last one to scan
+	 * @param handler the receiver of the runs
+	 */
+	public void scan(CharSequence text, int from, int to, SpanHandler handler) {
+		int begin = -1;
+		for (int index = from; index < to; index++) {
+			if (CharClasses.isWhitespace(text.charAt(index))) {
+				if (begin >= 0) {
+					handler.span(begin, index);
+					begin = -1;
+				}
+			} else if (begin < 0) {
+				begin = index;
+			}
+		}
+		if (begin >= 0) {
+			handler.span(begin, to);
+		}
+	}
+
+	public static WhitespaceScanner scalar() {
+		return SCALAR;
+	}
+
+	public static WhitespaceScanner getInstance() {
+		return INSTANCE;
+	}
+
+	private static WhitespaceScanner load() {
+		if (!Boolean.parseBoolean(System.getProperty(PROPERTY, "true")) || version() < VECTOR_VERSION) {
+			return SCALAR;
+		}
+		try {
+			WhitespaceScanner scanner = (WhitespaceScanner) Class.forName(VECTOR).getDeclaredConstructor().newInstance();
+			LOGGER.debug("Scanning whitespaces with the vector API");
+			return scanner;
+		} catch (ClassNotFoundException e) {
+			// the build fails without the vector scanner, hence a partial classpath
+			LOGGER.warn("Scanning whitespaces one char at a time, the vector scanner is missing: {}", VECTOR);
+			return SCALAR;
+		} catch (ReflectiveOperationException | LinkageError e) {
+			LOGGER.debug("Scanning whitespaces one char at a time: {}", e.toString());
+			return SCALAR;
+		}
+	}
+
+	/*
+	 * The feature version of the JVM, 1 up to Java 8.
+	 */
+	private static int version() {
+		String version = System.getProperty("java.specification.version", "1");
+		try {
+			return Integer.parseInt(version.split("\\.")[0]);
+		} catch (NumberFormatException e) {
+			return 1;
+		}
+	}
+
+	private static class ScalarWhitespaceScanner extends WhitespaceScanner {
+
+		@Override
+		public void scan(char[] chars, int from, int to, SpanHandler handler) {
+			int begin = -1;
+			for (int index = from; index < to; index++) {
+				if (CharClasses.isWhitespace(chars[index])) {
+					if (begin >= 0) {
+						handler.span(begin, index);
+						begin = -1;
+					}
+				} else if (begin < 0) {
+					begin = index;
+				}
+			}
+			if (begin >= 0) {
+				handler.span(begin, to);
+			}
+		}
+
+	}
+
+}
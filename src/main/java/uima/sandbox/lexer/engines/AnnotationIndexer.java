@@ -0,0 +1,78 @@
+package uima.sandbox.lexer.engines;
+
+import org.apache.uima.cas.CAS;
+import org.apache.uima.cas.Type;
+import org.apache.uima.cas.impl.CASImpl;
+import org.apache.uima.cas.impl.LowLevelIndexRepository;
+import org.apache.uima.cas.text.AnnotationFS;
+import org.apache.uima.jcas.JCas;
+
+import uima.sandbox.lexer.models.SpanHandler;
+import uima.sandbox.lexer.models.Spans;
+
+/**
+ * Creates and indexes an annotation per span, through the low-level CAS
+ * when available, so that no feature structure object is created.
+ *
+ * Spans should come in the order of the annotation index, begin ascending
+ * then end descending: sorted indexes then append each annotation instead
+ * of searching for its position and shifting the ones after it.
+ */
+public class AnnotationIndexer implements SpanHandler {
+
+	private final CAS cas;
+
+	private final Type type;
+
+	private final CASImpl lowLevelCas;
+
+	private final int typeCode;
+
+	private final LowLevelIndexRepository indexes;
+
+	private int count;
+
+	public AnnotationIndexer(JCas cas, Type type) {
+		this.cas = cas.getCas();
+		this.type = type;
+		if (this.cas instanceof CASImpl) {
+			this.lowLevelCas = (CASImpl) this.cas;
+			this.typeCode = this.lowLevelCas.ll_getTypeSystem().ll_getCodeForType(type);
+			this.indexes = this.lowLevelCas.ll_getIndexRepository();
+		} else {
+			this.lowLevelCas = null;
+			this.typeCode = 0;
+			this.indexes = null;
+		}
+	}
+
+	@Override
+	public void span(int begin, int end) {
+		if (this.lowLevelCas == null) {
+			AnnotationFS annotation = this.cas.createAnnotation(this.type, begin, end);
+			this.cas.addFsToIndexes(annotation);
+		} else {
+			this.indexes.ll_addFS(this.lowLevelCas.ll_createAnnotation(this.typeCode, begin, end));
+		}
+		this.count++;
+	}
+
+	/**
+	 * indexes spans in bulk
+	 *
+	 * @param spans the spans, in the order of the annotation index
+	 */
+	public void index(Spans spans) {
+		for (int index = 0; index < spans.size(); index++) {
+			this.span(spans.begin(index), spans.end(index));
+		}
+	}
+
+	/**
+	 * @return the number of annotations created
+	 */
+	public int getCount() {
+		return this.count;
+	}
+
+}
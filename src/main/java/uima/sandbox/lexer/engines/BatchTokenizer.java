@@ -0,0 +1,294 @@
+package uima.sandbox.lexer.engines;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Queue;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import org.apache.uima.UIMAException;
+import org.apache.uima.cas.Type;
+import org.apache.uima.fit.factory.JCasFactory;
+import org.apache.uima.jcas.JCas;
+import org.apache.uima.resource.metadata.TypeSystemDescription;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import uima.sandbox.lexer.core.Tokenizer;
+import uima.sandbox.lexer.models.Spans;
+import uima.sandbox.lexer.resources.SegmentBank;
+
+/**
+ * Tokenizes a stream of documents concurrently, reporting their spans or
+ * annotated CASes in the order of the documents.
+ *
+ * At most a given number of documents are read ahead of the results
+ * consumed, so that a slow consumer holds back the reading of the
+ * documents instead of queuing them all. Every document is tokenized with
+ * the segments the bank serves when the batch starts. The CASes of a
+ * batch are kept for the next batches of the same type system description.
+ *
+ * A batch tokenizer is thread-safe; batches run on the same executor.
+ */
+public class BatchTokenizer implements AutoCloseable {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(BatchTokenizer.class);
+
+	private final SegmentBank bank;
+
+	private final ExecutorService executor;
+
+	private final boolean owned;
+
+	private final int capacity;
+
+	private final Map<TypeSystemDescription, Queue<JCas>> idle;
+
+	/**
+	 * tokenizes on virtual threads where the JVM has them, on a thread per
+	 * core otherwise
+	 *
+	 * @param bank the shared segment bank
+	 */
+	public BatchTokenizer(SegmentBank bank) {
+		this(bank, newExecutor(), 4 * Runtime.getRuntime().availableProcessors(), true);
+	}
+
+	/**
+	 * @param bank the shared segment bank
+	 * @param executor the executor tokenizing the documents, left open on close
+	 * @param capacity the most documents tokenized ahead of the consumer
+	 */
+	public BatchTokenizer(SegmentBank bank, ExecutorService executor, int capacity) {
+		this(bank, executor, capacity, false);
+	}
+
+	private BatchTokenizer(SegmentBank bank, ExecutorService executor, int capacity, boolean owned) {
+		this.bank = bank;
+		this.executor = executor;
+		this.capacity = Integer.max(1, capacity);
+		this.owned = owned;
+		// descriptions are resolved in place when a CAS is created, hence
+		// compared by identity
+		this.idle = Collections.synchronizedMap(new IdentityHashMap<>());
+	}
+
+	/*
+	 * Virtual threads come with Java 21, hence are looked up reflectively.
+	 */
+	private static ExecutorService newExecutor() {
+		try {
+			ExecutorService executor = (ExecutorService) Executors.class
+					.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+			LOGGER.debug("Tokenizing batches on virtual threads");
+			return executor;
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			LOGGER.debug("Tokenizing batches on a thread per core: {}", e.toString());
+			return Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), runnable -> {
+				Thread thread = new Thread(runnable, "batch-tokenizer");
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+	}
+
+	public int getCapacity() {
+		return this.capacity;
+	}
+
+	/**
+	 * tokenizes documents as the spans are consumed. The documents ahead of
+	 * the consumer are cancelled when the batch is closed, hence a batch
+	 * left before its end should be closed.
+	 *
+	 * @param documents the documents
+	 * @return the spans of each document, in the order of the documents
+	 */
+	public Batch<Spans> tokenize(Iterator<? extends CharSequence> documents) {
+		SegmentBank bank = this.bank.snapshot();
+		return new Ordered<>(documents, document -> () -> {
+			Spans spans = new Spans();
+			new Tokenizer(bank).tokenize(document, spans);
+			return spans;
+		});
+	}
+
+	/**
+	 * tokenizes documents as the spans are consumed, the documents ahead of
+	 * the consumer being cancelled when the stream is closed
+	 *
+	 * @param documents the documents
+	 * @return the spans of each document, in the order of the documents
+	 */
+	public Stream<Spans> tokenize(Stream<? extends CharSequence> documents) {
+		Batch<Spans> spans = this.tokenize(documents.iterator());
+		return StreamSupport.stream(Spliterators.spliteratorUnknownSize(spans,
+				Spliterator.ORDERED | Spliterator.NONNULL), false).onClose(spans::close).onClose(documents::close);
+	}
+
+	/**
+	 * annotates documents in pooled CASes, each one reset and reused once
+	 * the consumer returns. The documents ahead of a failing consumer are
+	 * cancelled.
+	 *
+	 * @param documents the documents
+	 * @param typeSystem the type system of the CASes
+	 * @param type the name of the annotation type of the tokens
+	 * @param consumer the receiver of each CAS, in the order of the documents
+	 * @throws UIMAException if the CASes cannot be created
+	 */
+	public void annotate(Iterator<? extends CharSequence> documents, TypeSystemDescription typeSystem, String type,
+			Consumer<JCas> consumer) throws UIMAException {
+		SegmentBank bank = this.bank.snapshot();
+		Queue<JCas> idle = this.idle.computeIfAbsent(typeSystem, key -> new ConcurrentLinkedQueue<>());
+		// a CAS per document in progress, plus the one being consumed
+		BlockingQueue<JCas> pool = new ArrayBlockingQueue<>(this.capacity + 1);
+		for (int index = 0; index <= this.capacity; index++) {
+			JCas cas = idle.poll();
+			pool.add(cas == null ? JCasFactory.createJCas(typeSystem) : cas);
+		}
+		if (pool.peek().getTypeSystem().getType(type) == null) {
+			idle.addAll(pool);
+			throw new IllegalArgumentException("No such type in the type system: " + type);
+		}
+		Ordered<JCas> cases = new Ordered<>(documents, document -> {
+			JCas cas = pool.remove();
+			return () -> {
+				cas.setDocumentText(document.toString());
+				Type annotationType = cas.getTypeSystem().getType(type);
+				AnnotationIndexer indexer = new AnnotationIndexer(cas, annotationType);
+				new Tokenizer(bank).tokenize(cas.getDocumentText(), indexer);
+				return cas;
+			};
+		});
+		try {
+			while (cases.hasNext()) {
+				JCas cas = cases.next();
+				try {
+					consumer.accept(cas);
+				} finally {
+					cas.reset();
+					pool.add(cas);
+				}
+			}
+		} finally {
+			// the CASes of cancelled documents may still be written to, hence
+			// are left out of the pool
+			cases.close();
+			idle.addAll(pool);
+		}
+	}
+
+	/**
+	 * releases the pooled CASes, and shuts the executor down if this
+	 * tokenizer created it
+	 */
+	@Override
+	public void close() {
+		this.idle.clear();
+		if (this.owned) {
+			this.executor.shutdown();
+		}
+	}
+
+	/**
+	 * The results of a batch, in the order of the documents. Closing it
+	 * cancels the documents submitted ahead of the consumer and stops
+	 * reading the documents.
+	 */
+	public interface Batch<T> extends Iterator<T>, AutoCloseable {
+
+		@Override
+		public void close();
+
+	}
+
+	/*
+	 * A task per document, submitted as the tasks before it are consumed.
+	 */
+	private interface Task<T> {
+
+		Callable<T> of(CharSequence document);
+
+	}
+
+	/**
+	 * The results of the documents, submitted ahead of the consumer up to
+	 * the capacity, and waited for in order.
+	 */
+	private class Ordered<T> implements Batch<T> {
+
+		private final Iterator<? extends CharSequence> documents;
+
+		private final Task<T> task;
+
+		private final Deque<Future<T>> pending;
+
+		private boolean closed;
+
+		Ordered(Iterator<? extends CharSequence> documents, Task<T> task) {
+			this.documents = documents;
+			this.task = task;
+			this.pending = new ArrayDeque<>(capacity);
+		}
+
+		private void fill() {
+			while (!this.closed && this.pending.size() < capacity && this.documents.hasNext()) {
+				this.pending.add(executor.submit(this.task.of(this.documents.next())));
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			this.fill();
+			return !this.pending.isEmpty();
+		}
+
+		@Override
+		public T next() {
+			if (!this.hasNext()) {
+				throw new NoSuchElementException();
+			}
+			try {
+				return this.pending.remove().get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				this.close();
+				throw new IllegalStateException(e);
+			} catch (ExecutionException e) {
+				this.close();
+				if (e.getCause() instanceof RuntimeException) {
+					throw (RuntimeException) e.getCause();
+				}
+				throw new IllegalStateException(e.getCause());
+			}
+		}
+
+		@Override
+		public void close() {
+			this.closed = true;
+			for (Future<T> future : this.pending) {
+				future.cancel(true);
+			}
+			this.pending.clear();
+		}
+
+	}
+
+}
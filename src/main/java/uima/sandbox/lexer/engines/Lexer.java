@@ -1,41 +1,46 @@
 package uima.sandbox.lexer.engines;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.LinkedList;
-import java.util.List;
-import java.util.Map;
-import java.util.Queue;
-import java.util.Set;
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
-import java.util.regex.Pattern;
 
+import org.apache.uima.UimaContext;
 import org.apache.uima.analysis_engine.AnalysisEngineProcessException;
-import org.apache.uima.cas.FSIterator;
 import org.apache.uima.cas.Type;
+import org.apache.uima.cas.TypeSystem;
 import org.apache.uima.cas.text.AnnotationFS;
-import org.apache.uima.cas.text.AnnotationIndex;
 import org.apache.uima.fit.component.JCasAnnotator_ImplBase;
 import org.apache.uima.fit.descriptor.ConfigurationParameter;
 import org.apache.uima.fit.descriptor.ExternalResource;
 import org.apache.uima.jcas.JCas;
 import org.apache.uima.jcas.tcas.Annotation;
+import org.apache.uima.resource.ResourceInitializationException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import uima.sandbox.lexer.models.Tree;
-import uima.sandbox.lexer.models.Unit;
+import uima.sandbox.lexer.core.ParallelTokenizer;
+import uima.sandbox.lexer.core.Splitter;
+import uima.sandbox.lexer.core.Tokenizer;
+import uima.sandbox.lexer.core.WhitespaceScanner;
+import uima.sandbox.lexer.metrics.DocumentMetrics;
+import uima.sandbox.lexer.metrics.LexerMetrics;
+import uima.sandbox.lexer.metrics.Phase;
+import uima.sandbox.lexer.models.CharTree;
+import uima.sandbox.lexer.models.CompoundAutomaton;
+import uima.sandbox.lexer.models.SpanHandler;
+import uima.sandbox.lexer.models.Spans;
+import uima.sandbox.lexer.resources.LanguageBanks;
 import uima.sandbox.lexer.resources.SegmentBank;
 
 public class Lexer extends JCasAnnotator_ImplBase {
 	
 	private static final Logger LOGGER = LoggerFactory.getLogger(Lexer.class);
 	
-	private static final Pattern ABBREVIATION = Pattern.compile("^[A-Z][a-z]*\\.([A-Z][a-z]*\\.)+$");
-	
-
-	private AtomicLong totalTimeInMillis = new AtomicLong(0);
+	private AtomicLong totalTimeInNanos = new AtomicLong(0);
 
 	
 	// parameters
@@ -43,330 +48,353 @@ public class Lexer extends JCasAnnotator_ImplBase {
 	@ConfigurationParameter(name = PARAM_TYPE)
 	private String type;
 	
+	/**
+	 * Whether to annotate the final tokens as the streaming {@link Tokenizer}
+	 * finds them in a single scan over the text, instead of the tokenize,
+	 * split, merge and clean passes over the CAS. Both produce the same
+	 * tokens.
+	 */
+	public static final String PARAM_FUSED = "Fused";
+	@ConfigurationParameter(name = PARAM_FUSED, mandatory = false, defaultValue = "false")
+	private boolean fused;
+	
+	/**
+	 * Whether to cut large documents into chunks tokenized in parallel on
+	 * the common fork-join pool, in a single scan each, at whitespace chars
+	 * that no compound segment contains. It produces the same tokens.
+	 */
+	public static final String PARAM_PARALLEL = "Parallel";
+	@ConfigurationParameter(name = PARAM_PARALLEL, mandatory = false, defaultValue = "false")
+	private boolean parallel;
+	
+	/**
+	 * The least size of the chunks of a document tokenized in parallel,
+	 * in chars. Smaller documents are tokenized in a single chunk.
+	 */
+	public static final String PARAM_CHUNK_SIZE = "ChunkSize";
+	@ConfigurationParameter(name = PARAM_CHUNK_SIZE, mandatory = false, defaultValue = "262144")
+	private int chunkSize;
+	
+	/**
+	 * Whether to time the phases of every document and count its tokens
+	 * into the {@link LexerMetrics} of the JVM.
+	 */
+	public static final String PARAM_METRICS = "Metrics";
+	@ConfigurationParameter(name = PARAM_METRICS, mandatory = false, defaultValue = "true")
+	private boolean metrics;
+	
+	/**
+	 * Whether to create the annotations as instances of the JCas cover
+	 * class generated for the type, named after it, instead of generic
+	 * ones. Covers are indexed one at a time, a little slower than the bulk
+	 * indexing of generic annotations.
+	 */
+	public static final String PARAM_JCAS_COVER = "JCasCover";
+	@ConfigurationParameter(name = PARAM_JCAS_COVER, mandatory = false, defaultValue = "false")
+	private boolean jcasCover;
+	
+	/**
+	 * The segment banks of the languages needing their own, as
+	 * language=location entries, locations being URLs or file paths. The
+	 * bank of a document is chosen from its language, then loaded on first
+	 * use; documents of other languages get the default bank.
+	 */
+	public static final String PARAM_LANGUAGE_BANKS = "LanguageBanks";
+	@ConfigurationParameter(name = PARAM_LANGUAGE_BANKS, mandatory = false)
+	private String[] languageBankLocations;
+	
+	private LanguageBanks languageBanks;
+	
 	// resources
 	@ExternalResource(key = SegmentBank.KEY_SEGMENT_BANK)
 	private SegmentBank bank;
 	
+	private final boolean bulk = !this.overridesCreateAnnotation();
+	
+	// type system handles, resolved once per type system
+	private TypeSystem typeSystem;
+	
+	private Type annotationType;
+	
+	private MethodHandle cover;
+	
 	private Type getType(JCas cas) {
+		if (cas.getTypeSystem() == this.typeSystem) {
+			return this.annotationType;
+		}
 		return cas.getTypeSystem().getType(this.type);
 	}
 	
+	/**
+	 * resolve the type system handles, as CAS annotators do whenever the
+	 * type system changes: JCas annotators are not notified.
+	 * 
+	 * @param typeSystem the type system of the next documents
+	 * @throws AnalysisEngineProcessException if the type or its JCas cover
+	 * class are missing
+	 */
+	protected void typeSystemInit(TypeSystem typeSystem) throws AnalysisEngineProcessException {
+		Type annotationType = typeSystem.getType(this.type);
+		if (annotationType == null) {
+			throw new AnalysisEngineProcessException(
+					new IllegalArgumentException("No such type in the type system: " + this.type));
+		}
+		this.annotationType = annotationType;
+		this.cover = this.jcasCover ? this.getCover() : null;
+		this.typeSystem = typeSystem;
+	}
+	
+	/*
+	 * The constructor of the cover, as a handle typed for invokeExact:
+	 * unlike a reflective call, it neither boxes its arguments nor checks
+	 * their access on every annotation.
+	 */
+	private MethodHandle getCover() throws AnalysisEngineProcessException {
+		ClassLoader loader = Thread.currentThread().getContextClassLoader();
+		try {
+			// built-in types are covered in org.apache.uima.jcas, as uima.tcas.Annotation
+			String name = this.type.startsWith("uima.") ? "org.apache.uima.jcas." + this.type.substring(5) : this.type;
+			Class<?> cover = Class.forName(name, true, loader == null ? Lexer.class.getClassLoader() : loader);
+			MethodType constructor = MethodType.methodType(void.class, JCas.class, int.class, int.class);
+			return MethodHandles.publicLookup().findConstructor(cover.asSubclass(Annotation.class), constructor)
+					.asType(constructor.changeReturnType(Annotation.class));
+		} catch (ClassNotFoundException | ClassCastException | NoSuchMethodException | IllegalAccessException e) {
+			throw new AnalysisEngineProcessException(e);
+		}
+	}
+	
+	@Override
+	public void initialize(UimaContext context) throws ResourceInitializationException {
+		super.initialize(context);
+		if (this.languageBankLocations != null) {
+			try {
+				this.languageBanks = LanguageBanks.parse(this.languageBankLocations);
+			} catch (IllegalArgumentException e) {
+				throw new ResourceInitializationException(e);
+			}
+		}
+	}
+	
+	/*
+	 * The bank of the language of a document, the default one otherwise.
+	 */
+	private SegmentBank getBank(JCas cas) throws AnalysisEngineProcessException {
+		if (this.languageBanks != null) {
+			try {
+				SegmentBank bank = this.languageBanks.get(cas.getDocumentLanguage());
+				if (bank != null) {
+					return bank;
+				}
+			} catch (IOException e) {
+				throw new AnalysisEngineProcessException(e);
+			}
+		}
+		return this.bank;
+	}
 	
 	@Override
 	public void process(JCas cas) throws AnalysisEngineProcessException {
-		long start = System.currentTimeMillis();
+		long start = System.nanoTime();
+		if (cas.getTypeSystem() != this.typeSystem) {
+			this.typeSystemInit(cas.getTypeSystem());
+		}
+		SegmentBank bank = this.getBank(cas).snapshot();
+		CharTree prefixes = bank.getGeneratedTree("initial");
+		CharTree suffixes = bank.getGeneratedTree("final");
+		CharTree abbreviations = bank.getGeneratedTree("abbreviation");
+		CompoundAutomaton compound = bank.getAutomaton("compound");
+		DocumentMetrics document = new DocumentMetrics(cas.getDocumentText().length());
+		if (this.parallel) {
+			if(LOGGER.isTraceEnabled()) 
+				LOGGER.trace("tokenizing chunks in parallel");
+			ParallelTokenizer tokenizer = new ParallelTokenizer(prefixes, suffixes, abbreviations, compound, 
+					ForkJoinPool.commonPool(), this.chunkSize);
+			Spans tokens = new Spans();
+			int compounds = tokenizer.tokenize(cas.getDocumentText(), tokens);
+			long mark = document.time(Phase.TOKENIZE, start);
+			this.index(cas, tokens);
+			document.time(Phase.INDEX, mark);
+			document.tokens(tokens.size());
+			document.compounds(compounds);
+		} else if (this.fused) {
+			if(LOGGER.isTraceEnabled()) 
+				LOGGER.trace("tokenizing in a single pass");
+			Tokenizer tokenizer = new Tokenizer(prefixes, suffixes, abbreviations, compound);
+			SpanHandler indexer = this.indexer(cas);
+			tokenizer.tokenize(cas.getDocumentText(), (begin, end) -> {
+				indexer.span(begin, end);
+				document.tokens(1);
+			});
+			document.time(Phase.TOKENIZE, start);
+			document.compounds(tokenizer.getCompoundCount());
+		} else {
+			this.process(cas, prefixes, suffixes, abbreviations, compound, document, start);
+		}
+		
+		long duration = System.nanoTime() - start;
+		
+		totalTimeInNanos.addAndGet(duration);
+		LOGGER.debug("Tokenized document in {}ms [Cumulated: {}ms]", 
+				TimeUnit.NANOSECONDS.toMillis(duration), 
+				TimeUnit.NANOSECONDS.toMillis(totalTimeInNanos.get()));
+		if (this.metrics) {
+			LexerMetrics.getInstance().processed(document);
+		}
+	}
+	
+	private void process(JCas cas, CharTree prefixes, CharTree suffixes, CharTree abbreviations, 
+			CompoundAutomaton compound, DocumentMetrics document, long start) {
 		if(LOGGER.isTraceEnabled()) 
 			LOGGER.trace("tokenizing");
-		List<AnnotationFS> tokens = this.tokenize(cas);
+		Spans tokens = this.tokenize(cas);
+		long mark = document.time(Phase.TOKENIZE, start);
 		
-		Tree<Character> prefixes = this.bank.get("initial");
-		Tree<Character> suffixes = this.bank.get("final");
 		if (prefixes != null && suffixes != null) {
 			if(LOGGER.isTraceEnabled()) 
 				LOGGER.trace("Splitting");
-			this.split(cas, tokens, prefixes, suffixes);
+			tokens = this.split(cas, tokens, prefixes, suffixes, abbreviations);
+			mark = document.time(Phase.SPLIT, mark);
 		}
-		Tree<Character> compound = this.bank.get("compound");
 		if (compound != null) {
 			if(LOGGER.isTraceEnabled()) 
 				LOGGER.trace("merging");
-			this.merge(cas, compound);
+			Spans words = this.merge(cas, compound);
+			mark = document.time(Phase.MERGE, mark);
+			document.compounds(words.size());
 			if(LOGGER.isTraceEnabled()) 
 				LOGGER.trace("cleaning");
-			this.clean(cas);			
+			tokens = this.clean(tokens, words);
+			mark = document.time(Phase.CLEAN, mark);
 		}
-		
-		long duration = System.currentTimeMillis() - start;
-		
-		totalTimeInMillis.addAndGet(duration);
-		LOGGER.debug("Tokenized document in {}ms [Cumulated: {}ms]", 
-				duration, 
-				totalTimeInMillis.get());
-
+		if(LOGGER.isTraceEnabled()) 
+			LOGGER.trace("Adding {} tokens to indexes", tokens.size());
+		this.index(cas, tokens);
+		document.time(Phase.INDEX, mark);
+		document.tokens(tokens.size());
 	}
 	
 	/**
-	 * remove word annotations covered by compound word ones.
+	 * create and index an annotation per span, in bulk.
 	 * 
 	 * @param cas the common analysis structure
+	 * @param tokens the offsets of the tokens, in the order of the annotation index
 	 */
-	private void clean(JCas cas) {
-		List<Annotation> remAnnotations = new ArrayList<Annotation>();
-		Type type = this.getType(cas);
-		AnnotationIndex<Annotation> index = cas.getAnnotationIndex(type);
-		FSIterator<Annotation> iterator = index.iterator();
-		
-		Queue<Annotation> lastAnnotationBuffer = new LinkedList<>();
-		int lastEnd = -1;
-		
-		Annotation annotation;
-		while (iterator.hasNext()) {
-			annotation = iterator.next();
-			if(annotation.getBegin()>lastEnd) { 
-				/*
-				 * Fast, easy and most frequent case: the annotation does 
-				 * not overlap with the ones in the buffer
-				 */
-				lastAnnotationBuffer.clear();
-			} else {
-				/*
-				 * Does not mean that is is contained in another annotation.
-				 */
-				for(Annotation candidateContainer:lastAnnotationBuffer)
-					if(candidateContainer.getBegin() <= annotation.getBegin()
-					  && candidateContainer.getEnd() >= annotation.getEnd())
-						// annotation is contained in candidateContainer
-						remAnnotations.add(annotation);
+	private void index(JCas cas, Spans tokens) {
+		SpanHandler indexer = this.indexer(cas);
+		if (indexer instanceof AnnotationIndexer) {
+			((AnnotationIndexer) indexer).index(tokens);
+		} else {
+			for (int index = 0; index < tokens.size(); index++) {
+				indexer.span(tokens.begin(index), tokens.end(index));
 			}
-			lastEnd = Integer.max(lastEnd, annotation.getEnd());
-			lastAnnotationBuffer.add(annotation);
-		}
-		for (Annotation a : remAnnotations) {
-			a.removeFromIndexes();
 		}
 	}
 	
-	/**
-	 * create word annotations over the document text
-	 * 
-	 * @param cas the common analysis structure
+	/*
+	 * Annotations go through the low-level CAS unless they are JCas covers
+	 * or a subclass creates them its own way.
 	 */
-	private List<AnnotationFS> tokenize(JCas cas) {
-		List<AnnotationFS> tokens = new ArrayList<>();
-		String text = cas.getDocumentText();
-		int begin = 0;
-		int length = text.length();
-		int cnt = 0;
-		for (int index = begin; index < length; index++) {
-			if (this.hasChanged(text,index)) {
-				if (!this.areSpaces(text,begin,index)) {
-					AnnotationFS annotation = this.createAnnotation(cas,begin,index);
-					tokens.add(annotation);
-//					cas.getCas().addFsToIndexes(annotation);
-					cnt++;
-				}
-				begin = index;
-			} 
-		}
-		if (!this.areSpaces(text,begin,length)) {
-			AnnotationFS annotation = this.createAnnotation(cas,begin,length);
-//			cas.getCas().addFsToIndexes(annotation);
-			tokens.add(annotation);
-			cnt++;
-		}
-		if(LOGGER.isTraceEnabled()) 
-			LOGGER.trace("Number of annotations created and indexed: {}", cnt);
-		return tokens;
-	}
-
-	private boolean areSpaces(String text, int begin, int end) {
-		for (int index = begin; index < end; index++) {
-			char current = text.charAt(index);
-			if(!Character.isWhitespace(current))
-				return false;
-		}
-		return true;
-	}
-
-	protected boolean hasChanged(String text,int index) {
-		if (index == 0) {
-			return false;
+	private SpanHandler indexer(JCas cas) {
+		if (this.bulk && this.cover == null) {
+			return new AnnotationIndexer(cas, this.getType(cas));
 		} else {
-			char previous = text.charAt(index - 1);
-			char current = text.charAt(index);
-			if (Character.isWhitespace(previous) && !Character.isWhitespace(current)) {
-				return true;
-			} else if (!Character.isWhitespace(previous) && Character.isWhitespace(current)) {
-				return true;
-			} else {
-				return false;
-			} 
-		}
-	}
-
-	private void merge(JCas cas, Tree<Character> root) {
-		String text = cas.getDocumentText();
-		Type type = this.getType(cas);
-		Map<Tree<Character>,Unit> currents = new HashMap<Tree<Character>,Unit>();
-		currents.put(root,new Unit(type,0));
-		int length = text.length();
-		for (int index = 0; index < length; index++) {
-			char ch = Character.toLowerCase(text.charAt(index));
-			Character character = new Character(ch);
-			this.filter(cas,currents,character,index);
-			if (currents.isEmpty()) {
-				currents.put(root,new Unit(type,index + 1));
-			} else {
-				boolean done = false;
-				for (Tree<Character> current : currents.keySet()) {
-					if (current.leaf()) {
-						Unit word = currents.get(current);
-						word.update(index + 1);
-						done = true;
-					}
-				}
-				if (done) {
-					currents.put(root,new Unit(type,index + 1));
-				}
-			}
+			return (begin, end) -> cas.addFsToIndexes(this.createAnnotation(cas, begin, end));
 		}
 	}
 	
-	private void filter(JCas cas,Map<Tree<Character>,Unit> currents, Character character,int index) {
-		Map<Tree<Character>,Unit> nexts = new HashMap<Tree<Character>,Unit>();
-		for (Tree<Character> current : currents.keySet()) {
-			Tree<Character> next = current.get(character);
-			Unit word = currents.get(current);
-			if (next == null) {
-				word.fire(cas);
-			} else {
-				nexts.put(next,word);
+	private boolean overridesCreateAnnotation() {
+		for (Class<?> type = this.getClass(); type != Lexer.class; type = type.getSuperclass()) {
+			try {
+				type.getDeclaredMethod("createAnnotation", JCas.class, int.class, int.class);
+				return true;
+			} catch (NoSuchMethodException e) {
+				// inherited
 			}
 		}
-		currents.clear();
-		currents.putAll(nexts);
+		return false;
 	}
 	
-	private void split(JCas cas, List<AnnotationFS> tokens, Tree<Character> prefixes, Tree<Character> suffixes) {
-		List<AnnotationFS> splittedAnnotations = new ArrayList<AnnotationFS>();
-		List<AnnotationFS> deletedAnnotations = new ArrayList<AnnotationFS>();
-//		Type type = this.getType(cas);
-//		AnnotationIndex<Annotation> index = cas.getAnnotationIndex(type);
-//		FSIterator<Annotation> iterator = index.iterator();
-		if(LOGGER.isTraceEnabled()) 
-			LOGGER.trace("Iterating over all annotations");
-//		while (iterator.hasNext()) {
-//			Annotation annotation = iterator.next();
-		for(AnnotationFS annotation:tokens) {
-			
-			/*
-			 * Split prefixes
-			 */
-			AnnotationFS resultingAnnotation = this.splitPrefix(cas, annotation, prefixes, splittedAnnotations, deletedAnnotations);
-			
-			/*
-			 * Split suffixes
-			 */
-			this.splitSuffix(cas, resultingAnnotation, suffixes, splittedAnnotations, deletedAnnotations);
-		}
-		
-		if(LOGGER.isTraceEnabled()) 
-			LOGGER.trace("Adding {} splitted annotations", splittedAnnotations.size());
-		for (AnnotationFS annotation :splittedAnnotations) {
-			tokens.add(annotation);
-//			cas.getCas().addFsToIndexes(annotation);
-		}
-		if(LOGGER.isTraceEnabled()) 
-			LOGGER.trace("Removing {} annotations", deletedAnnotations.size());
-		Set<AnnotationFS> deletedAnnotationsSet = new HashSet<>();
-		deletedAnnotationsSet.addAll(deletedAnnotations);
-		for (AnnotationFS annotation:deletedAnnotations) 
-			cas.getCas().removeFsFromIndexes(annotation);
-		tokens.removeAll(deletedAnnotationsSet);
+	/**
+	 * leave out the tokens and compound words covered by another one, so
+	 * that they are never annotated.
+	 * 
+	 * @param tokens the offsets of the split tokens
+	 * @param words the offsets of the compound words
+	 * @return the offsets left, in the order of the annotation index
+	 */
+	private Spans clean(Spans tokens, Spans words) {
+		Spans cleaned = new Spans(tokens.size() + words.size());
+		Tokenizer.clean(tokens, words, cleaned);
 		if(LOGGER.isTraceEnabled()) 
-			LOGGER.trace("Adding {} tokens to indexes", tokens.size());
-		for(AnnotationFS fs:tokens) {
-			
-			cas.addFsToIndexes(fs);
-		}
+			LOGGER.trace("Left out {} covered tokens", tokens.size() + words.size() - cleaned.size());
+		return cleaned;
+	}
+	
+	/**
+	 * delimit word tokens over the document text
+	 * 
+	 * @param cas the common analysis structure
+	 * @return the offsets of the tokens
+	 */
+	private Spans tokenize(JCas cas) {
+		Spans tokens = new Spans();
+		String text = cas.getDocumentText();
+		WhitespaceScanner.getInstance().scan(text, 0, text.length(), tokens);
 		if(LOGGER.isTraceEnabled()) 
-			LOGGER.trace("Tokens indexed in CAS");		
+			LOGGER.trace("Number of tokens delimited: {}", tokens.size());
+		return tokens;
 	}
 
-	private AnnotationFS splitPrefix(JCas cas, AnnotationFS annotation, Tree<Character> prefixes, List<AnnotationFS> splittedAnnotations, List<AnnotationFS> deletedAnnotations) {
-		AnnotationFS coveringAnnotation = annotation;
-		if(isAbbreviation(coveringAnnotation))
-			// do not split abbreviations
-			return coveringAnnotation;
-		AnnotationFS prefix = this.findPrefix(cas,annotation.getBegin(),annotation.getEnd(),annotation.getBegin(),prefixes);
-		if (prefix != null) {
-			if ((coveringAnnotation = this.fill(cas, coveringAnnotation, prefix, splittedAnnotations, deletedAnnotations)) != null) {
-				splittedAnnotations.add(prefix);
-				return this.splitPrefix(cas, coveringAnnotation, prefixes, splittedAnnotations, deletedAnnotations);
-			} 
-		}
-		return coveringAnnotation;
+	/**
+	 * delimit compound words over the document text
+	 * 
+	 * @param cas the common analysis structure
+	 * @param compounds the automaton of the compound segments
+	 * @return the offsets of the compound words
+	 */
+	private Spans merge(JCas cas, CompoundAutomaton compounds) {
+		Spans words = new Spans();
+		compounds.match(cas.getDocumentText(), words);
+		return words;
 	}
-
-	private boolean isAbbreviation(AnnotationFS coveringAnnotation) {
-		String string = coveringAnnotation.getCoveredText();
-		return isAbbreviation(string);
+	
+	/**
+	 * split initial and final segments off the tokens. Only the offsets
+	 * of the fragments are computed, no annotation is created.
+	 * 
+	 * @param cas the common analysis structure
+	 * @param tokens the offsets of the tokens
+	 * @param prefixes the initial segments
+	 * @param suffixes the final segments
+	 * @param abbreviations the abbreviation segments, or null
+	 * @return the offsets of the split tokens
+	 */
+	private Spans split(JCas cas, Spans tokens, CharTree prefixes, CharTree suffixes, CharTree abbreviations) {
+		String text = cas.getDocumentText();
+		Splitter splitter = new Splitter(prefixes, suffixes, abbreviations);
+		Spans splittedTokens = new Spans(tokens.size() + tokens.size() / 4);
+		for (int index = 0; index < tokens.size(); index++) {
+			splitter.split(text, tokens.begin(index), tokens.end(index), splittedTokens);
+		}
+		if(LOGGER.isTraceEnabled()) 
+			LOGGER.trace("Split {} tokens into {}", tokens.size(), splittedTokens.size());
+		return splittedTokens;
 	}
 
 	public boolean isAbbreviation(String string) {
-		return ABBREVIATION.matcher(string).find();
-	}
-
-	private AnnotationFS splitSuffix(JCas cas, AnnotationFS annotation, Tree<Character> suffixes, List<AnnotationFS> splittedAnnotations, List<AnnotationFS> deletedAnnotations) {
-		AnnotationFS coveringAnnotation = annotation;
-		if(isAbbreviation(coveringAnnotation))
-			// do not split abbreviations
-			return coveringAnnotation;
-		AnnotationFS suffix = this.findSuffix(cas,annotation.getBegin(),annotation.getEnd(),annotation.getEnd(),suffixes);
-		if (suffix != null) {
-			if ((coveringAnnotation = this.fill(cas, coveringAnnotation, suffix, splittedAnnotations, deletedAnnotations)) != null) {
-				splittedAnnotations.add(suffix);
-				return this.splitSuffix(cas, coveringAnnotation, suffixes, splittedAnnotations, deletedAnnotations);
-			}
-		}
-		return coveringAnnotation;
+		return Splitter.isAbbreviation(string);
 	}
 
-	private AnnotationFS findPrefix(JCas cas,int begin,int end,int index,Tree<Character> current) {
-		if (index < end) {
-			char ch = cas.getDocumentText().charAt(index);
-			Character c = Character.toLowerCase(ch);
-			Tree<Character> tree = current.get(c);
-			if (tree == null) {
-				if (current.leaf()) { 
-					return this.createAnnotation(cas,begin,index);
-				} else {
-					return null;
-				}
-			} else {
-				return this.findPrefix(cas,begin,end,index + 1,tree);
-			}
-		} else {
-			return null;
-		}
-	}
-	
-	private AnnotationFS findSuffix(JCas cas,int begin,int end,int index,Tree<Character> current) {
-		if (index > begin) {
-			char ch = cas.getDocumentText().charAt(index - 1);
-			Character c = Character.toLowerCase(ch);
-			Tree<Character> tree = current.get(c);
-			if (tree == null) {
-				if (current.leaf()) {
-					return this.createAnnotation(cas,index,end);
-				} else {
-					return null;
-				}
-			} else {
-				return this.findSuffix(cas,begin,end,index - 1,tree);
+	protected AnnotationFS createAnnotation(JCas cas,int begin,int end) {
+		if (this.cover != null && cas.getTypeSystem() == this.typeSystem) {
+			try {
+				return (Annotation) this.cover.invokeExact(cas, begin, end);
+			} catch (RuntimeException | Error e) {
+				throw e;
+			} catch (Throwable e) {
+				throw new IllegalStateException(e);
 			}
-		} else {
-			return null;
 		}
-	}
-	
-	private AnnotationFS fill(JCas cas,AnnotationFS coveringAnnotation,AnnotationFS coveredAnnotation,List<AnnotationFS> splittedAnnotations,List<AnnotationFS> deletedAnnotations) {
-		if (coveringAnnotation.getBegin() < coveredAnnotation.getBegin()) {
-			deletedAnnotations.add(coveringAnnotation);
-			AnnotationFS newCoveringAnnotation = this.createAnnotation(cas, coveringAnnotation.getBegin(), coveredAnnotation.getBegin());
-			splittedAnnotations.add(newCoveringAnnotation);
-			return newCoveringAnnotation;
-		} else if (coveredAnnotation.getEnd() < coveringAnnotation.getEnd()) {
-			deletedAnnotations.add(coveringAnnotation);
-			AnnotationFS newCoveringAnnotation = this.createAnnotation(cas, coveredAnnotation.getEnd(), coveringAnnotation.getEnd());
-			splittedAnnotations.add(newCoveringAnnotation);
-			return newCoveringAnnotation;
-		} else {
-			return null;
-		}
-	}
-	
-	protected AnnotationFS createAnnotation(JCas cas,int begin,int end) {
 		return cas.getCas().createAnnotation(getType(cas), begin, end);
 	}
 	
@@ -0,0 +1,85 @@
+package uima.sandbox.lexer.metrics;
+
+import java.util.Locale;
+
+/**
+ * The metrics of the tokenization of a single document.
+ */
+public class DocumentMetrics {
+
+	private final long[] phases;
+
+	private int chars;
+
+	private int tokens;
+
+	private int compounds;
+
+	private long nanos;
+
+	public DocumentMetrics(int chars) {
+		this.phases = new long[Phase.values().length];
+		this.chars = chars;
+	}
+
+	/**
+	 * adds the time elapsed since some start to a phase
+	 *
+	 * @param phase the phase
+	 * @param start the start of the phase, from {@link System#nanoTime()}
+	 * @return the end of the phase, hence the start of the next one
+	 */
+	public long time(Phase phase, long start) {
+		long end = System.nanoTime();
+		this.phases[phase.ordinal()] += end - start;
+		this.nanos += end - start;
+		return end;
+	}
+
+	public void tokens(int count) {
+		this.tokens += count;
+	}
+
+	public void compounds(int count) {
+		this.compounds += count;
+	}
+
+	public long getNanos(Phase phase) {
+		return this.phases[phase.ordinal()];
+	}
+
+	public long getNanos() {
+		return this.nanos;
+	}
+
+	public int getChars() {
+		return this.chars;
+	}
+
+	/**
+	 * @return the number of annotations indexed, the tokens and compound
+	 * words covered by another one being left out before indexing
+	 */
+	public int getTokens() {
+		return this.tokens;
+	}
+
+	public int getCompounds() {
+		return this.compounds;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		builder.append(this.chars).append(" chars, ").append(this.tokens).append(" tokens, ")
+			.append(this.compounds).append(" compounds in ").append(this.nanos).append("ns [");
+		for (Phase phase : Phase.values()) {
+			if (phase.ordinal() > 0) {
+				builder.append(", ");
+			}
+			builder.append(phase.name().toLowerCase(Locale.ROOT)).append(": ").append(this.getNanos(phase)).append("ns");
+		}
+		return builder.append(']').toString();
+	}
+
+}
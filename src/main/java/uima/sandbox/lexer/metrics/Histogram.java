@@ -0,0 +1,174 @@
+package uima.sandbox.lexer.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free histogram of durations in nanoseconds.
+ *
+ * Durations are counted in log-linear buckets, four per power of two, so
+ * that recording costs a few increments and percentiles are known within
+ * 25%.
+ */
+public class Histogram {
+
+	private static final int SUB_BUCKETS = 4;
+
+	private static final int BUCKETS = 62 * SUB_BUCKETS;
+
+	private final AtomicLongArray buckets;
+
+	private final LongAdder count;
+
+	private final LongAdder total;
+
+	private final AtomicLong max;
+
+	public Histogram() {
+		this.buckets = new AtomicLongArray(BUCKETS);
+		this.count = new LongAdder();
+		this.total = new LongAdder();
+		this.max = new AtomicLong(0);
+	}
+
+	static int bucket(long value) {
+		if (value < SUB_BUCKETS) {
+			return value < 0 ? 0 : (int) value;
+		}
+		int exponent = 63 - Long.numberOfLeadingZeros(value);
+		int sub = (int) (value >>> (exponent - 2)) & (SUB_BUCKETS - 1);
+		return (exponent - 1) * SUB_BUCKETS + sub;
+	}
+
+	static long upperBound(int bucket) {
+		if (bucket < SUB_BUCKETS) {
+			return bucket;
+		}
+		int exponent = bucket / SUB_BUCKETS + 1;
+		int sub = bucket % SUB_BUCKETS;
+		long lower = (long) (SUB_BUCKETS + sub) << (exponent - 2);
+		return lower + (1L << (exponent - 2)) - 1;
+	}
+
+	public void record(long nanos) {
+		this.buckets.incrementAndGet(bucket(nanos));
+		this.count.increment();
+		this.total.add(nanos);
+		long current;
+		while (nanos > (current = this.max.get()) && !this.max.compareAndSet(current, nanos)) {
+		}
+	}
+
+	public long getCount() {
+		return this.count.sum();
+	}
+
+	public long getTotal() {
+		return this.total.sum();
+	}
+
+	public long getMax() {
+		return this.max.get();
+	}
+
+	/**
+	 * @param percentile the percentile, between 0 and 100
+	 * @return the upper bound of the bucket holding the percentile, or 0
+	 * when nothing was recorded
+	 */
+	public long getPercentile(double percentile) {
+		long[] counts = new long[BUCKETS];
+		long count = 0;
+		for (int index = 0; index < BUCKETS; index++) {
+			counts[index] = this.buckets.get(index);
+			count += counts[index];
+		}
+		long rank = (long) Math.ceil(count * percentile / 100.0);
+		long seen = 0;
+		for (int index = 0; index < BUCKETS; index++) {
+			seen += counts[index];
+			if (seen >= rank && seen > 0) {
+				return Math.min(upperBound(index), this.getMax());
+			}
+		}
+		return 0;
+	}
+
+	public Snapshot snapshot() {
+		return new Snapshot(this.getCount(), this.getTotal(), this.getPercentile(50), this.getPercentile(90),
+				this.getPercentile(99), this.getMax());
+	}
+
+	public void reset() {
+		for (int index = 0; index < BUCKETS; index++) {
+			this.buckets.set(index, 0);
+		}
+		this.count.reset();
+		this.total.reset();
+		this.max.set(0);
+	}
+
+	/**
+	 * The statistics of a histogram at some point.
+	 */
+	public static class Snapshot {
+
+		private final long count;
+
+		private final long total;
+
+		private final long p50;
+
+		private final long p90;
+
+		private final long p99;
+
+		private final long max;
+
+		public Snapshot(long count, long total, long p50, long p90, long p99, long max) {
+			this.count = count;
+			this.total = total;
+			this.p50 = p50;
+			this.p90 = p90;
+			this.p99 = p99;
+			this.max = max;
+		}
+
+		public long getCount() {
+			return this.count;
+		}
+
+		public long getTotal() {
+			return this.total;
+		}
+
+		public long getMean() {
+			return this.count == 0 ? 0 : this.total / this.count;
+		}
+
+		public long getP50() {
+			return this.p50;
+		}
+
+		public long getP90() {
+			return this.p90;
+		}
+
+		public long getP99() {
+			return this.p99;
+		}
+
+		public long getMax() {
+			return this.max;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("count=%d mean=%dns p50=%dns p90=%dns p99=%dns max=%dns", this.count,
+					this.getMean(), this.p50, this.p90, this.p99, this.max);
+		}
+
+	}
+
+}
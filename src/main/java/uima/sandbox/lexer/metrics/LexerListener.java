@@ -0,0 +1,13 @@
+package uima.sandbox.lexer.metrics;
+
+/**
+ * A receiver of the metrics of every document tokenized in the JVM.
+ *
+ * Listeners are called synchronously by the processing thread, hence
+ * should return quickly.
+ */
+public interface LexerListener {
+
+	public void processed(DocumentMetrics document);
+
+}
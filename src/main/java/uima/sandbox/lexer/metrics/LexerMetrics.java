@@ -0,0 +1,193 @@
+package uima.sandbox.lexer.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The metrics of all the lexers of the JVM, registered in the platform
+ * MBean server as {@value #NAME}.
+ *
+ * Recording a document costs a few atomic increments per phase, so that
+ * metrics may be left on in production.
+ */
+public final class LexerMetrics implements LexerMetricsMXBean {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(LexerMetrics.class);
+
+	public static final String NAME = "uima.sandbox.lexer:type=LexerMetrics";
+
+	private static final LexerMetrics INSTANCE = register(new LexerMetrics());
+
+	private final Map<Phase, Histogram> phases;
+
+	private final Histogram documents;
+
+	private final LongAdder chars;
+
+	private final LongAdder tokens;
+
+	private final LongAdder compounds;
+
+	private final List<LexerListener> listeners;
+
+	private volatile DocumentMetrics slowest;
+
+	private LexerMetrics() {
+		this.phases = new EnumMap<>(Phase.class);
+		for (Phase phase : Phase.values()) {
+			this.phases.put(phase, new Histogram());
+		}
+		this.documents = new Histogram();
+		this.chars = new LongAdder();
+		this.tokens = new LongAdder();
+		this.compounds = new LongAdder();
+		this.listeners = new CopyOnWriteArrayList<>();
+	}
+
+	private static LexerMetrics register(LexerMetrics metrics) {
+		try {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			ObjectName name = new ObjectName(NAME);
+			if (!server.isRegistered(name)) {
+				server.registerMBean(metrics, name);
+			}
+		} catch (JMException | SecurityException e) {
+			LOGGER.warn("Could not register the lexer metrics: {}", e.getMessage());
+		}
+		return metrics;
+	}
+
+	public static LexerMetrics getInstance() {
+		return INSTANCE;
+	}
+
+	public void addListener(LexerListener listener) {
+		this.listeners.add(listener);
+	}
+
+	public void removeListener(LexerListener listener) {
+		this.listeners.remove(listener);
+	}
+
+	/**
+	 * records the metrics of a document, then passes them to the listeners
+	 *
+	 * @param document the metrics of the document
+	 */
+	public void processed(DocumentMetrics document) {
+		for (Phase phase : Phase.values()) {
+			long nanos = document.getNanos(phase);
+			if (nanos > 0) {
+				this.phases.get(phase).record(nanos);
+			}
+		}
+		this.documents.record(document.getNanos());
+		this.chars.add(document.getChars());
+		this.tokens.add(document.getTokens());
+		this.compounds.add(document.getCompounds());
+		DocumentMetrics slowest = this.slowest;
+		if (slowest == null || document.getNanos() > slowest.getNanos()) {
+			this.slowest = document;
+		}
+		for (LexerListener listener : this.listeners) {
+			listener.processed(document);
+		}
+	}
+
+	public Histogram getHistogram(Phase phase) {
+		return this.phases.get(phase);
+	}
+
+	@Override
+	public long getDocuments() {
+		return this.documents.getCount();
+	}
+
+	@Override
+	public long getChars() {
+		return this.chars.sum();
+	}
+
+	@Override
+	public long getTokens() {
+		return this.tokens.sum();
+	}
+
+	@Override
+	public long getCompounds() {
+		return this.compounds.sum();
+	}
+
+	private double perSecond(long count) {
+		long nanos = this.documents.getTotal();
+		return nanos == 0 ? 0 : count * 1e9 / nanos;
+	}
+
+	@Override
+	public double getTokensPerSecond() {
+		return this.perSecond(this.getTokens());
+	}
+
+	@Override
+	public double getCharsPerSecond() {
+		return this.perSecond(this.getChars());
+	}
+
+	@Override
+	public double getCompoundMatchRate() {
+		long tokens = this.getTokens();
+		return tokens == 0 ? 0 : (double) this.getCompounds() / tokens;
+	}
+
+	@Override
+	public Histogram.Snapshot getDocumentNanos() {
+		return this.documents.snapshot();
+	}
+
+	@Override
+	public Map<String, Histogram.Snapshot> getPhaseNanos() {
+		Map<String, Histogram.Snapshot> snapshots = new LinkedHashMap<>();
+		for (Phase phase : Phase.values()) {
+			snapshots.put(phase.name().toLowerCase(Locale.ROOT), this.phases.get(phase).snapshot());
+		}
+		return snapshots;
+	}
+
+	@Override
+	public long getSlowestDocumentNanos() {
+		DocumentMetrics slowest = this.slowest;
+		return slowest == null ? 0 : slowest.getNanos();
+	}
+
+	@Override
+	public long getSlowestDocumentChars() {
+		DocumentMetrics slowest = this.slowest;
+		return slowest == null ? 0 : slowest.getChars();
+	}
+
+	@Override
+	public void reset() {
+		for (Histogram histogram : this.phases.values()) {
+			histogram.reset();
+		}
+		this.documents.reset();
+		this.chars.reset();
+		this.tokens.reset();
+		this.compounds.reset();
+		this.slowest = null;
+	}
+
+}
@@ -0,0 +1,37 @@
+package uima.sandbox.lexer.metrics;
+
+import java.util.Map;
+
+/**
+ * The JMX view of the metrics of the lexers of the JVM.
+ */
+public interface LexerMetricsMXBean {
+
+	public long getDocuments();
+
+	public long getChars();
+
+	public long getTokens();
+
+	public long getCompounds();
+
+	public double getTokensPerSecond();
+
+	public double getCharsPerSecond();
+
+	/**
+	 * @return the ratio of the compound words to the tokens
+	 */
+	public double getCompoundMatchRate();
+
+	public Histogram.Snapshot getDocumentNanos();
+
+	public Map<String, Histogram.Snapshot> getPhaseNanos();
+
+	public long getSlowestDocumentNanos();
+
+	public long getSlowestDocumentChars();
+
+	public void reset();
+
+}
@@ -0,0 +1,16 @@
+package uima.sandbox.lexer.metrics;
+
+/**
+ * The phases of the tokenization of a document, in the order the
+ * multi-pass engine runs them.
+ *
+ * The single-pass engine delimits, splits, merges and annotates tokens in
+ * a single scan, hence times it as {@link #TOKENIZE} only. The multi-pass
+ * engine leaves out covered tokens during {@link #CLEAN}, before
+ * {@link #INDEX}, hence deletes no annotation.
+ */
+public enum Phase {
+
+	TOKENIZE, SPLIT, MERGE, CLEAN, INDEX;
+
+}
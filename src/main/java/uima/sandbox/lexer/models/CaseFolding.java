@@ -0,0 +1,122 @@
+package uima.sandbox.lexer.models;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * The lowercase forms of the chars whose lowercase form occurs in an
+ * alphabet, the one of a trie, so that a char is folded by an array read
+ * instead of a call to {@link Character#toLowerCase(char)}, and a char
+ * folding out of the alphabet is told at once.
+ *
+ * The table covers Latin-1 only, and stops at the greatest char folding
+ * into the alphabet: at most half a kilobyte. The few chars above, such as
+ * the typographic apostrophe or the Kelvin sign folding to k, are searched
+ * in sorted arrays.
+ */
+public final class CaseFolding {
+
+	/**
+	 * The fold of the chars out of the alphabet. It is not an XML char,
+	 * hence no segment has it.
+	 */
+	public static final char NONE = '\uffff';
+
+	private static final int DENSE = 0x100;
+
+	private final char[] table;
+
+	private final char[] items;
+
+	private final char[] folds;
+
+	private CaseFolding(char[] table, char[] items, char[] folds) {
+		this.table = table;
+		this.items = items;
+		this.folds = folds;
+	}
+
+	/**
+	 * @param alphabet the chars of the trie, as lowercase forms
+	 * @return the folding of the chars into the alphabet
+	 */
+	public static CaseFolding of(BitSet alphabet) {
+		char[] table = new char[DENSE];
+		Arrays.fill(table, NONE);
+		int length = 0;
+		char[] items = new char[16];
+		char[] folds = new char[16];
+		int count = 0;
+		for (int item = 0; item < Character.MAX_VALUE; item++) {
+			char lower = Character.toLowerCase((char) item);
+			if (!alphabet.get(lower)) {
+				continue;
+			} else if (item < DENSE) {
+				table[item] = lower;
+				length = item + 1;
+			} else {
+				if (count == items.length) {
+					items = Arrays.copyOf(items, count * 2);
+					folds = Arrays.copyOf(folds, count * 2);
+				}
+				items[count] = (char) item;
+				folds[count++] = lower;
+			}
+		}
+		return new CaseFolding(Arrays.copyOf(table, length), Arrays.copyOf(items, count), Arrays.copyOf(folds, count));
+	}
+
+	/**
+	 * the lowercase form of a segment, char by char as the tries are
+	 * searched
+	 *
+	 * @param value the segment
+	 * @return the lowercase segment
+	 */
+	public static String fold(String value) {
+		char[] chars = value.toCharArray();
+		for (int index = 0; index < chars.length; index++) {
+			chars[index] = Character.toLowerCase(chars[index]);
+		}
+		return new String(chars);
+	}
+
+	/**
+	 * @param item the char
+	 * @return the lowercase form of the char, or {@link #NONE} if it is
+	 * out of the alphabet
+	 */
+	public char fold(char item) {
+		if (item < this.table.length) {
+			return this.table[item];
+		}
+		return item < DENSE ? NONE : this.search(item);
+	}
+
+	private char search(char item) {
+		int low = 0;
+		int high = this.items.length - 1;
+		while (low <= high) {
+			int middle = (low + high) >>> 1;
+			char found = this.items[middle];
+			if (found < item) {
+				low = middle + 1;
+			} else if (found > item) {
+				high = middle - 1;
+			} else {
+				return this.folds[middle];
+			}
+		}
+		return NONE;
+	}
+
+	/**
+	 * the size of the table and arrays, in bytes
+	 *
+	 * @return the number of bytes
+	 */
+	public long bytes() {
+		return this.table.length * 2L + this.items.length * 4L;
+	}
+
+}
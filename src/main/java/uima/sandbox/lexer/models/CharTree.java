@@ -0,0 +1,29 @@
+package uima.sandbox.lexer.models;
+
+/**
+ * A tree over primitive chars whose nodes are addressed by int states,
+ * so that walking it neither boxes characters nor allocates nodes.
+ */
+public interface CharTree {
+
+	public static final int NONE = -1;
+
+	public int root();
+
+	public boolean leaf(int state);
+
+	public int get(int state, char item);
+
+	/**
+	 * the child of a state along the lowercase form of a char, tries
+	 * holding lowercase segments only
+	 *
+	 * @param state the state
+	 * @param item the char, in any case
+	 * @return the child state, or {@link #NONE}
+	 */
+	public default int getFolded(int state, char item) {
+		return this.get(state, Character.toLowerCase(item));
+	}
+
+}
@@ -0,0 +1,223 @@
+package uima.sandbox.lexer.models;
+
+/**
+ * An Aho-Corasick automaton over the states of a packed tree.
+ *
+ * Every state gets a failure link to the state of its longest proper
+ * suffix that is also in the tree, and a dictionary link to the nearest
+ * leaf on its failure chain, so that a text is matched in a single
+ * linear pass whatever the number of partial matches.
+ *
+ * Matches are reported leftmost-longest and never overlap: among the
+ * matches starting at the leftmost position, the longest one wins, and
+ * the search goes on after its end.
+ *
+ * Transitions may be taken through another tree numbering its states
+ * like the packed one, such as a {@link GeneratedTree}.
+ */
+public class CompoundAutomaton {
+
+	private final PackedTree tree;
+
+	private final CharTree transitions;
+
+	private final int[] depths;
+
+	private final int[] failures;
+
+	private final int[] dictionary;
+
+	private final int window;
+
+	private final CaseFolding folding;
+
+	public CompoundAutomaton(PackedTree tree) {
+		this(tree, tree);
+	}
+
+	/**
+	 * @param tree the tree of the segments
+	 * @param transitions the tree to take the transitions through, whose
+	 * states are those of the packed tree
+	 */
+	public CompoundAutomaton(PackedTree tree, CharTree transitions) {
+		int size = tree.size();
+		int root = tree.root();
+		this.tree = tree;
+		this.transitions = transitions;
+		this.depths = new int[size];
+		this.failures = new int[size];
+		this.dictionary = new int[size];
+		this.failures[root] = root;
+		this.dictionary[root] = CharTree.NONE;
+		int longest = 0;
+		// states are numbered breadth-first, parents always come first
+		for (int state = 0; state < size; state++) {
+			if (tree.leaf(state)) {
+				longest = Integer.max(longest, this.depths[state]);
+			}
+			for (int edge = tree.first(state); edge < tree.last(state); edge++) {
+				char item = tree.label(edge);
+				int child = tree.target(edge);
+				this.depths[child] = this.depths[state] + 1;
+				int failure = root;
+				if (state != root) {
+					failure = this.step(this.failures[state], item);
+				}
+				this.failures[child] = failure;
+				this.dictionary[child] = tree.leaf(failure) ? failure : this.dictionary[failure];
+			}
+		}
+		this.window = longest + 1;
+		this.folding = tree.getFolding();
+	}
+
+	/**
+	 * the longest segment of the automaton, in chars
+	 *
+	 * @return the length of the longest segment
+	 */
+	public int longest() {
+		return this.window - 1;
+	}
+
+	/**
+	 * whether a char, once lowercased, occurs in no segment, so that no
+	 * match crosses it and matching restarts from scratch after it
+	 *
+	 * @param item the char
+	 * @return true if no match contains the char
+	 */
+	public boolean isSeparator(char item) {
+		return this.folding.fold(item) == CaseFolding.NONE;
+	}
+
+	private int step(int state, char item) {
+		int root = this.tree.root();
+		while (true) {
+			int next = this.transitions.get(state, item);
+			if (next != CharTree.NONE) {
+				return next;
+			} else if (state == root) {
+				return root;
+			} else {
+				state = this.failures[state];
+			}
+		}
+	}
+
+	public void match(CharSequence text, SpanHandler handler) {
+		this.match(text, 0, text.length(), handler);
+	}
+
+	/**
+	 * reports the leftmost-longest matches of the text between two offsets.
+	 *
+	 * @param text the text to match
+	 * @param from the first offset of the text to match
+	 * @param to the offset after the last one to match
+	 * @param handler the receiver of the matches
+	 */
+	public void match(CharSequence text, int from, int to, SpanHandler handler) {
+		Matcher matcher = this.matcher(from, handler);
+		for (int index = from; index < to; index++) {
+			matcher.feed(text.charAt(index));
+		}
+		matcher.flush();
+	}
+
+	/**
+	 * creates a matcher fed one char at a time, for callers scanning the
+	 * text for other purposes in the same pass.
+	 *
+	 * @param from the offset of the first char to be fed
+	 * @param handler the receiver of the matches
+	 * @return the matcher
+	 */
+	public Matcher matcher(int from, SpanHandler handler) {
+		return new Matcher(from, handler);
+	}
+
+	/**
+	 * A match in progress.
+	 *
+	 * A match starting at some offset is known to be the longest one once
+	 * no partial match covers that offset anymore; until then, the length
+	 * of the longest match per starting offset is kept in a ring as large
+	 * as the longest segment.
+	 */
+	public class Matcher {
+
+		private final SpanHandler handler;
+
+		private final int[] lengths;
+
+		private int state;
+
+		private int offset;
+
+		private int pending;
+
+		private int end;
+
+		private Matcher(int from, SpanHandler handler) {
+			this.handler = handler;
+			this.lengths = new int[window];
+			this.state = tree.root();
+			this.offset = from;
+			this.pending = from;
+			this.end = from;
+		}
+
+		public void feed(char item) {
+			char folded = folding.fold(item);
+			this.state = folded == CaseFolding.NONE ? tree.root() : step(this.state, folded);
+			this.offset++;
+			int found = transitions.leaf(this.state) ? this.state : dictionary[this.state];
+			while (found != CharTree.NONE) {
+				int length = depths[found];
+				int slot = (this.offset - length) % window;
+				if (this.lengths[slot] < length) {
+					this.lengths[slot] = length;
+				}
+				found = dictionary[found];
+			}
+			int limit = this.offset - depths[this.state];
+			while (this.pending < limit) {
+				this.settle();
+			}
+		}
+
+		/**
+		 * the offset before which every match has been reported
+		 *
+		 * @return the first offset a match may still start at
+		 */
+		public int settled() {
+			return this.pending;
+		}
+
+		/**
+		 * reports the matches still pending at the end of the text
+		 */
+		public void flush() {
+			while (this.pending < this.offset) {
+				this.settle();
+			}
+			this.state = tree.root();
+		}
+
+		private void settle() {
+			int begin = this.pending++;
+			int slot = begin % window;
+			int length = this.lengths[slot];
+			this.lengths[slot] = 0;
+			if (length > 0 && begin >= this.end) {
+				this.end = begin + length;
+				this.handler.span(begin, this.end);
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,115 @@
+package uima.sandbox.lexer.models;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A packed tree compiled into a class of its own, whose transitions are
+ * nested switches: on the state, then on the char.
+ *
+ * The class is written as bytecode when the tree is generated and defined
+ * by a class loader of its own, so that it is unloaded with the tree. The
+ * JIT then compiles the switches of the bank instead of the binary
+ * searches over the buffers of the packed tree. States are numbered as in
+ * the packed tree, so the two are interchangeable.
+ *
+ * Generation is optional: the banks serve generated trees when the system
+ * property {@value #PROPERTY} is set to true, and only for trees of at
+ * most {@value #MAX_STATES} states. Larger trees are split into several
+ * methods, whose code outgrows the instruction cache and which the JIT
+ * compiles late, so that they are walked faster packed.
+ */
+public abstract class GeneratedTree implements CharTree {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(GeneratedTree.class);
+
+	public static final String PROPERTY = "uima.sandbox.lexer.generate";
+
+	public static final int MAX_STATES = 1 << 12;
+
+	private static final AtomicInteger COUNT = new AtomicInteger();
+
+	private final PackedTree tree;
+
+	private final boolean[] leaves;
+
+	private final CaseFolding folding;
+
+	protected GeneratedTree(PackedTree tree) {
+		this.tree = tree;
+		this.leaves = new boolean[tree.size()];
+		for (int state = 0; state < this.leaves.length; state++) {
+			this.leaves[state] = tree.leaf(state);
+		}
+		this.folding = tree.getFolding();
+	}
+
+	/**
+	 * whether the banks built from now on serve generated trees, each bank
+	 * reading the property once
+	 *
+	 * @return true if {@value #PROPERTY} is set
+	 */
+	public static boolean isEnabled() {
+		return Boolean.getBoolean(PROPERTY);
+	}
+
+	/**
+	 * compiles a packed tree into a class and instantiates it
+	 *
+	 * @param tree the tree to compile
+	 * @return the generated tree, or null if the tree exceeds the limits of
+	 * a class or the class cannot be defined
+	 */
+	public static GeneratedTree generate(PackedTree tree) {
+		String name = GeneratedTree.class.getName() + COUNT.incrementAndGet();
+		try {
+			byte[] bytes = GeneratedTreeWriter.write(name, tree);
+			Class<?> type = new Loader().define(name, bytes);
+			GeneratedTree generated = (GeneratedTree) type.getConstructor(PackedTree.class).newInstance(tree);
+			LOGGER.debug("Generated {} of {} states in {} bytes", name, tree.size(), bytes.length);
+			return generated;
+		} catch (ReflectiveOperationException | LinkageError | RuntimeException e) {
+			LOGGER.debug("Cannot generate a tree of {} states: {}", tree.size(), e.toString());
+			return null;
+		}
+	}
+
+	/**
+	 * @return the packed tree the class was generated from
+	 */
+	public PackedTree getTree() {
+		return this.tree;
+	}
+
+	@Override
+	public int root() {
+		return this.tree.root();
+	}
+
+	@Override
+	public boolean leaf(int state) {
+		return this.leaves[state];
+	}
+
+	@Override
+	public int getFolded(int state, char item) {
+		char folded = this.folding.fold(item);
+		return folded == CaseFolding.NONE ? NONE : this.get(state, folded);
+	}
+
+	private static class Loader extends ClassLoader {
+
+		Loader() {
+			super(GeneratedTree.class.getClassLoader());
+		}
+
+		Class<?> define(String name, byte[] bytes) {
+			return this.defineClass(name, bytes, 0, bytes.length);
+		}
+
+	}
+
+}
@@ -0,0 +1,415 @@
+package uima.sandbox.lexer.models;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Writes the class file of a {@link GeneratedTree}.
+ *
+ * The transitions of the states are split into blocks of consecutive
+ * states, each one compiled into a static method: a tableswitch on the
+ * state, then a lookupswitch on the char per state. The get method
+ * dispatches on the block of the state, or holds the only block of small
+ * trees. Blocks are kept under the size above which the JIT does not
+ * compile a method.
+ *
+ * Classes are written in the Java 5 format, whose verifier infers the
+ * types of the locals itself, so that no stack map frame is needed.
+ */
+final class GeneratedTreeWriter {
+
+	private static final int MAGIC = 0xCAFEBABE;
+
+	private static final int VERSION = 49;
+
+	/*
+	 * under the 8000 bytes of the HugeMethodLimit of HotSpot
+	 */
+	private static final int MAX_BLOCK_SIZE = 7500;
+
+	private static final int MAX_BLOCKS = 2048;
+
+	private static final String SUPER = GeneratedTree.class.getName().replace('.', '/');
+
+	private static final String CONSTRUCTOR = "(L" + PackedTree.class.getName().replace('.', '/') + ";)V";
+
+	private static final String GET = "(IC)I";
+
+	private static final int ACC_PUBLIC = 0x0001;
+	private static final int ACC_PRIVATE = 0x0002;
+	private static final int ACC_STATIC = 0x0008;
+	private static final int ACC_FINAL = 0x0010;
+	private static final int ACC_SUPER = 0x0020;
+
+	private static final int CONSTANT_UTF8 = 1;
+	private static final int CONSTANT_INTEGER = 3;
+	private static final int CONSTANT_CLASS = 7;
+	private static final int CONSTANT_METHODREF = 10;
+	private static final int CONSTANT_NAME_AND_TYPE = 12;
+
+	private static final int ICONST_M1 = 0x02;
+	private static final int ICONST_0 = 0x03;
+	private static final int BIPUSH = 0x10;
+	private static final int SIPUSH = 0x11;
+	private static final int LDC_W = 0x13;
+	private static final int ILOAD = 0x15;
+	private static final int ALOAD_0 = 0x2a;
+	private static final int ALOAD_1 = 0x2b;
+	private static final int IUSHR = 0x7c;
+	private static final int TABLESWITCH = 0xaa;
+	private static final int LOOKUPSWITCH = 0xab;
+	private static final int IRETURN = 0xac;
+	private static final int RETURN = 0xb1;
+	private static final int INVOKESPECIAL = 0xb7;
+	private static final int INVOKESTATIC = 0xb8;
+
+	private final PackedTree tree;
+
+	private final ByteArrayOutputStream bytes;
+
+	private final DataOutputStream pool;
+
+	private final Map<String, Integer> constants;
+
+	private int count;
+
+	private GeneratedTreeWriter(PackedTree tree) {
+		this.tree = tree;
+		this.bytes = new ByteArrayOutputStream();
+		this.pool = new DataOutputStream(this.bytes);
+		this.constants = new HashMap<String, Integer>();
+		this.count = 1;
+	}
+
+	/**
+	 * @param name the binary name of the class
+	 * @param tree the tree to compile
+	 * @return the class file
+	 * @throws IllegalStateException if the tree exceeds the limits of a class
+	 */
+	static byte[] write(String name, PackedTree tree) {
+		try {
+			return new GeneratedTreeWriter(tree).write(name.replace('.', '/'));
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private byte[] write(String name) throws IOException {
+		int self = this.type(name);
+		int parent = this.type(SUPER);
+		int code = this.utf8("Code");
+		int shift = this.shift();
+		int blocks = ((this.tree.size() - 1) >>> shift) + 1;
+		ByteArrayOutputStream methods = new ByteArrayOutputStream();
+		DataOutputStream output = new DataOutputStream(methods);
+		Code constructor = new Code();
+		constructor.op(ALOAD_0).op(ALOAD_1).op(INVOKESPECIAL).u2(this.methodref(parent, "<init>", CONSTRUCTOR)).op(RETURN);
+		this.method(output, ACC_PUBLIC, "<init>", CONSTRUCTOR, code, 2, 2, constructor);
+		Code get = new Code();
+		if (blocks == 1) {
+			this.block(get, 1, 0, this.tree.size());
+		} else {
+			int[] calls = new int[blocks];
+			for (int block = 0; block < blocks; block++) {
+				calls[block] = this.methodref(self, "get" + block, GET);
+			}
+			this.dispatch(get, shift, calls);
+		}
+		this.method(output, ACC_PUBLIC, "get", GET, code, 2, 3, get);
+		for (int block = 0; blocks > 1 && block < blocks; block++) {
+			Code body = new Code();
+			this.block(body, 0, block << shift, Integer.min(this.tree.size(), (block + 1) << shift));
+			this.method(output, ACC_PRIVATE | ACC_STATIC, "get" + block, GET, code, 1, 2, body);
+		}
+		if (this.count > 0xffff) {
+			throw new IllegalStateException("Too many constants: " + this.count);
+		}
+		ByteArrayOutputStream file = new ByteArrayOutputStream();
+		DataOutputStream header = new DataOutputStream(file);
+		header.writeInt(MAGIC);
+		header.writeShort(0);
+		header.writeShort(VERSION);
+		header.writeShort(this.count);
+		this.bytes.writeTo(file);
+		header.writeShort(ACC_PUBLIC | ACC_FINAL | ACC_SUPER);
+		header.writeShort(self);
+		header.writeShort(parent);
+		header.writeShort(0);
+		header.writeShort(0);
+		header.writeShort(blocks == 1 ? 2 : 2 + blocks);
+		methods.writeTo(file);
+		header.writeShort(0);
+		header.flush();
+		return file.toByteArray();
+	}
+
+	/*
+	 * The largest number of bits of the state numbering a block whose
+	 * blocks all stay under the size limit, at least enough to keep the
+	 * number of blocks bounded.
+	 */
+	private int shift() {
+		int least = 0;
+		while (((this.tree.size() - 1) >>> least) >= MAX_BLOCKS) {
+			least++;
+		}
+		int shift = Integer.max(least, 32 - Integer.numberOfLeadingZeros(this.tree.size() - 1));
+		while (shift > least && this.largest(shift) > MAX_BLOCK_SIZE) {
+			shift--;
+		}
+		return shift;
+	}
+
+	private int largest(int shift) {
+		int largest = 0;
+		int size = 0;
+		for (int state = 0; state < this.tree.size(); state++) {
+			if ((state & ((1 << shift) - 1)) == 0) {
+				size = 24;
+			}
+			int edges = this.tree.last(state) - this.tree.first(state);
+			size += 4 + (edges == 0 ? 0 : 16 + edges * 12);
+			largest = Integer.max(largest, size);
+		}
+		return largest;
+	}
+
+	/*
+	 * switch (state >>> shift) { case block: return getBlock(state, item); }
+	 */
+	private void dispatch(Code code, int shift, int[] calls) throws IOException {
+		code.op(ILOAD).u1(1);
+		this.push(code, shift);
+		code.op(IUSHR);
+		int[] cases = code.tableswitch(0, calls.length - 1);
+		for (int block = 0; block < calls.length; block++) {
+			code.target(cases, block + 1);
+			code.op(ILOAD).u1(1).op(ILOAD).u1(2).op(INVOKESTATIC).u2(calls[block]).op(IRETURN);
+		}
+		code.target(cases, 0);
+		code.op(ICONST_M1).op(IRETURN);
+	}
+
+	/*
+	 * switch (state) { case state: switch (item) { case label: return target; } } return NONE;
+	 */
+	private void block(Code code, int local, int from, int to) throws IOException {
+		code.op(ILOAD).u1(local);
+		int[] cases = code.tableswitch(from, to - 1);
+		int[] failures = new int[to - from + 1];
+		int failed = 0;
+		failures[failed++] = cases[0];
+		for (int state = from; state < to; state++) {
+			int first = this.tree.first(state);
+			int last = this.tree.last(state);
+			if (first == last) {
+				failures[failed++] = cases[state - from + 1];
+				continue;
+			}
+			code.target(cases, state - from + 1);
+			code.op(ILOAD).u1(local + 1);
+			int[] labels = new int[last - first];
+			for (int edge = first; edge < last; edge++) {
+				labels[edge - first] = this.tree.label(edge);
+			}
+			int[] edges = code.lookupswitch(labels);
+			failures[failed++] = edges[0];
+			for (int edge = first; edge < last; edge++) {
+				code.target(edges, edge - first + 1);
+				this.push(code, this.tree.target(edge));
+				code.op(IRETURN);
+			}
+		}
+		for (int failure : failures) {
+			code.patch(failure);
+		}
+		code.op(ICONST_M1).op(IRETURN);
+	}
+
+	private void push(Code code, int value) throws IOException {
+		if (value >= -1 && value <= 5) {
+			code.op(ICONST_0 + value);
+		} else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+			code.op(BIPUSH).u1(value);
+		} else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+			code.op(SIPUSH).u2(value);
+		} else {
+			code.op(LDC_W).u2(this.integer(value));
+		}
+	}
+
+	private void method(DataOutputStream output, int access, String name, String descriptor, int attribute,
+			int stack, int locals, Code code) throws IOException {
+		if (code.size() > 0xffff) {
+			throw new IllegalStateException("Method too large: " + name);
+		}
+		output.writeShort(access);
+		output.writeShort(this.utf8(name));
+		output.writeShort(this.utf8(descriptor));
+		output.writeShort(1);
+		output.writeShort(attribute);
+		output.writeInt(12 + code.size());
+		output.writeShort(stack);
+		output.writeShort(locals);
+		output.writeInt(code.size());
+		output.write(code.bytes(), 0, code.size());
+		output.writeShort(0);
+		output.writeShort(0);
+	}
+
+	private int utf8(String value) throws IOException {
+		Integer index = this.constants.get("U" + value);
+		if (index == null) {
+			this.pool.writeByte(CONSTANT_UTF8);
+			this.pool.writeUTF(value);
+			index = this.constant("U" + value);
+		}
+		return index.intValue();
+	}
+
+	private int integer(int value) throws IOException {
+		Integer index = this.constants.get("I" + value);
+		if (index == null) {
+			this.pool.writeByte(CONSTANT_INTEGER);
+			this.pool.writeInt(value);
+			index = this.constant("I" + value);
+		}
+		return index.intValue();
+	}
+
+	private int type(String name) throws IOException {
+		int utf8 = this.utf8(name);
+		this.pool.writeByte(CONSTANT_CLASS);
+		this.pool.writeShort(utf8);
+		return this.constant("C" + name);
+	}
+
+	private int methodref(int owner, String name, String descriptor) throws IOException {
+		int utf8 = this.utf8(name);
+		int type = this.utf8(descriptor);
+		this.pool.writeByte(CONSTANT_NAME_AND_TYPE);
+		this.pool.writeShort(utf8);
+		this.pool.writeShort(type);
+		int nameAndType = this.constant("N" + owner + name + descriptor);
+		this.pool.writeByte(CONSTANT_METHODREF);
+		this.pool.writeShort(owner);
+		this.pool.writeShort(nameAndType);
+		return this.constant("M" + owner + name + descriptor);
+	}
+
+	private Integer constant(String key) {
+		Integer index = Integer.valueOf(this.count++);
+		this.constants.put(key, index);
+		return index;
+	}
+
+	/**
+	 * The bytecode of a method, whose switch offsets are patched once the
+	 * code of their cases is written.
+	 */
+	private static class Code {
+
+		private byte[] bytes = new byte[256];
+
+		private int size;
+
+		/*
+		 * the offset of the opcode of each switch, by the offset of its operand
+		 */
+		private final Map<Integer, Integer> switches = new HashMap<Integer, Integer>();
+
+		int size() {
+			return this.size;
+		}
+
+		byte[] bytes() {
+			return this.bytes;
+		}
+
+		Code op(int opcode) {
+			return this.u1(opcode);
+		}
+
+		Code u1(int value) {
+			if (this.size == this.bytes.length) {
+				this.bytes = Arrays.copyOf(this.bytes, this.size * 2);
+			}
+			this.bytes[this.size++] = (byte) value;
+			return this;
+		}
+
+		Code u2(int value) {
+			return this.u1(value >>> 8).u1(value);
+		}
+
+		Code u4(int value) {
+			return this.u2(value >>> 16).u2(value);
+		}
+
+		/*
+		 * The offsets of the operands to patch: the default first, then
+		 * one per case.
+		 */
+		int[] tableswitch(int low, int high) {
+			int opcode = this.size;
+			this.op(TABLESWITCH).align();
+			int[] operands = new int[high - low + 2];
+			operands[0] = this.placeholder(opcode);
+			this.u4(low).u4(high);
+			for (int index = 1; index < operands.length; index++) {
+				operands[index] = this.placeholder(opcode);
+			}
+			return operands;
+		}
+
+		int[] lookupswitch(int[] matches) {
+			int opcode = this.size;
+			this.op(LOOKUPSWITCH).align();
+			int[] operands = new int[matches.length + 1];
+			operands[0] = this.placeholder(opcode);
+			this.u4(matches.length);
+			for (int index = 0; index < matches.length; index++) {
+				this.u4(matches[index]);
+				operands[index + 1] = this.placeholder(opcode);
+			}
+			return operands;
+		}
+
+		private Code align() {
+			while (this.size % 4 != 0) {
+				this.u1(0);
+			}
+			return this;
+		}
+
+		private int placeholder(int opcode) {
+			int operand = this.size;
+			this.switches.put(operand, opcode);
+			this.u4(0);
+			return operand;
+		}
+
+		/*
+		 * Jumps from a case of a switch to the current offset.
+		 */
+		void target(int[] operands, int index) {
+			this.patch(operands[index]);
+		}
+
+		void patch(int operand) {
+			int offset = this.size - this.switches.get(operand).intValue();
+			this.bytes[operand] = (byte) (offset >>> 24);
+			this.bytes[operand + 1] = (byte) (offset >>> 16);
+			this.bytes[operand + 2] = (byte) (offset >>> 8);
+			this.bytes[operand + 3] = (byte) offset;
+		}
+
+	}
+
+}
@@ -21,7 +21,7 @@ public class HashTree<T> implements Tree<T> {
 		this.children = new HashMap<T, HashTree<T>>();
 	}
 	
-	private Map<T, HashTree<T>> getChildren() {
+	Map<T, HashTree<T>> getChildren() {
 		return this.children;
 	}
 	
@@ -64,6 +64,14 @@ public class HashTree<T> implements Tree<T> {
 		return this.getChildren().get(item);
 	}
 	
+	public int size() {
+		int size = 1;
+		for (HashTree<T> node : this.getChildren().values()) {
+			size += node.size();
+		}
+		return size;
+	}
+	
 	protected int deep() {
 		HashTree<T> parent = this.getParent();
 		if (parent == null) {
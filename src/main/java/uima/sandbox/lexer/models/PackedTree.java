@@ -0,0 +1,428 @@
+package uima.sandbox.lexer.models;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.IntBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+
+/**
+ * A read-only char tree packed into flat buffers.
+ *
+ * States are numbered in breadth-first order, the root being 0. The
+ * outgoing edges of a state are stored contiguously from
+ * <code>offsets[state]</code> to <code>offsets[state + 1]</code>, sorted
+ * by label, so that a transition is a binary search over a few chars.
+ *
+ * The buffers either wrap heap arrays or are views over a memory-mapped
+ * compiled bank, see {@link #write(DataOutputStream)} and
+ * {@link #read(ByteBuffer)}.
+ *
+ * It also implements {@link Tree} through lightweight views sharing the
+ * buffers, for callers that still walk trees node by node.
+ */
+public class PackedTree implements CharTree, Tree<Character> {
+
+	private final IntBuffer offsets;
+
+	private final CharBuffer labels;
+
+	private final IntBuffer targets;
+
+	private final ByteBuffer leaves;
+
+	private final int state;
+
+	private volatile CaseFolding folding;
+
+	public PackedTree(int[] offsets, char[] labels, int[] targets, boolean[] leaves) {
+		this(IntBuffer.wrap(offsets), CharBuffer.wrap(labels), IntBuffer.wrap(targets), ByteBuffer.allocate(leaves.length), 0);
+		for (int index = 0; index < leaves.length; index++) {
+			this.leaves.put(index, (byte) (leaves[index] ? 1 : 0));
+		}
+	}
+
+	private PackedTree(IntBuffer offsets, CharBuffer labels, IntBuffer targets, ByteBuffer leaves, int state) {
+		this.offsets = offsets;
+		this.labels = labels;
+		this.targets = targets;
+		this.leaves = leaves;
+		this.state = state;
+	}
+
+	/**
+	 * packs a hash tree into arrays
+	 *
+	 * @param tree the tree to pack
+	 * @return the packed tree
+	 */
+	public static PackedTree pack(HashTree<Character> tree) {
+		List<HashTree<Character>> nodes = new ArrayList<HashTree<Character>>();
+		Queue<HashTree<Character>> queue = new ArrayDeque<HashTree<Character>>();
+		queue.add(tree);
+		int edges = 0;
+		while (!queue.isEmpty()) {
+			HashTree<Character> node = queue.poll();
+			nodes.add(node);
+			for (Character item : sorted(node)) {
+				queue.add(node.get(item));
+				edges++;
+			}
+		}
+		int[] offsets = new int[nodes.size() + 1];
+		char[] labels = new char[edges];
+		int[] targets = new int[edges];
+		boolean[] leaves = new boolean[nodes.size()];
+		int edge = 0;
+		int next = 1;
+		for (int index = 0; index < nodes.size(); index++) {
+			HashTree<Character> node = nodes.get(index);
+			offsets[index] = edge;
+			leaves[index] = node.leaf();
+			for (Character item : sorted(node)) {
+				labels[edge] = item.charValue();
+				targets[edge] = next++;
+				edge++;
+			}
+		}
+		offsets[nodes.size()] = edge;
+		return new PackedTree(offsets, labels, targets, leaves);
+	}
+
+	/**
+	 * merges the states accepting the same suffixes into a minimal acyclic
+	 * automaton, so that segments ending alike share their final states.
+	 * States are merged bottom-up, a state being equivalent to a known one
+	 * when both are leaves or not and have the same labels to the same
+	 * merged targets. The automaton walks and accepts like the tree, but
+	 * its states are no longer reached by a single path: it is still
+	 * numbered breadth-first from the root, yet a state may have several
+	 * parents.
+	 *
+	 * @return the minimal automaton, this tree if it has no equivalent states
+	 */
+	public PackedTree minimize() {
+		int size = this.size();
+		int[] classes = new int[size];
+		Map<Signature, Integer> registry = new HashMap<Signature, Integer>();
+		int[] representatives = new int[size];
+		for (int state : this.postOrder()) {
+			int first = this.first(state);
+			int[] key = new int[(this.last(state) - first) * 2 + 1];
+			key[0] = this.leaf(state) ? 1 : 0;
+			for (int edge = first; edge < this.last(state); edge++) {
+				key[(edge - first) * 2 + 1] = this.label(edge);
+				key[(edge - first) * 2 + 2] = classes[this.target(edge)];
+			}
+			Integer known = registry.putIfAbsent(new Signature(key), registry.size());
+			if (known == null) {
+				representatives[registry.size() - 1] = state;
+				classes[state] = registry.size() - 1;
+			} else {
+				classes[state] = known.intValue();
+			}
+		}
+		if (registry.size() == size) {
+			return this;
+		}
+		// renumbers the classes breadth-first from the class of the root
+		int[] numbers = new int[registry.size()];
+		Arrays.fill(numbers, NONE);
+		int[] order = new int[registry.size()];
+		int count = 0;
+		int edges = 0;
+		numbers[classes[this.state]] = count;
+		order[count++] = classes[this.state];
+		for (int index = 0; index < count; index++) {
+			int state = representatives[order[index]];
+			for (int edge = this.first(state); edge < this.last(state); edge++) {
+				int target = classes[this.target(edge)];
+				if (numbers[target] == NONE) {
+					numbers[target] = count;
+					order[count++] = target;
+				}
+				edges++;
+			}
+		}
+		int[] offsets = new int[count + 1];
+		char[] labels = new char[edges];
+		int[] targets = new int[edges];
+		boolean[] leaves = new boolean[count];
+		int edge = 0;
+		for (int index = 0; index < count; index++) {
+			int state = representatives[order[index]];
+			offsets[index] = edge;
+			leaves[index] = this.leaf(state);
+			for (int old = this.first(state); old < this.last(state); old++) {
+				labels[edge] = this.label(old);
+				targets[edge] = numbers[classes[this.target(old)]];
+				edge++;
+			}
+		}
+		offsets[count] = edge;
+		return new PackedTree(offsets, labels, targets, leaves);
+	}
+
+	/*
+	 * The states reachable from the root, each one after all its targets.
+	 */
+	private int[] postOrder() {
+		int[] order = new int[this.size()];
+		boolean[] visited = new boolean[this.size()];
+		int[] stack = new int[this.size()];
+		int[] edges = new int[this.size()];
+		int count = 0;
+		int depth = 0;
+		stack[depth] = this.state;
+		edges[depth] = this.first(this.state);
+		visited[this.state] = true;
+		while (depth >= 0) {
+			int state = stack[depth];
+			if (edges[depth] < this.last(state)) {
+				int target = this.target(edges[depth]++);
+				if (!visited[target]) {
+					visited[target] = true;
+					depth++;
+					stack[depth] = target;
+					edges[depth] = this.first(target);
+				}
+			} else {
+				order[count++] = state;
+				depth--;
+			}
+		}
+		return Arrays.copyOf(order, count);
+	}
+
+	/**
+	 * The leaf flag, labels and merged targets of a state.
+	 */
+	private static class Signature {
+
+		private final int[] key;
+
+		private final int hash;
+
+		Signature(int[] key) {
+			this.key = key;
+			this.hash = Arrays.hashCode(key);
+		}
+
+		@Override
+		public int hashCode() {
+			return this.hash;
+		}
+
+		@Override
+		public boolean equals(Object object) {
+			return object instanceof Signature && Arrays.equals(this.key, ((Signature) object).key);
+		}
+
+	}
+
+	private static Character[] sorted(HashTree<Character> node) {
+		Map<Character, HashTree<Character>> children = node.getChildren();
+		Character[] items = children.keySet().toArray(new Character[children.size()]);
+		Arrays.sort(items);
+		return items;
+	}
+
+	/**
+	 * writes the state and edge counts followed by the offsets, targets,
+	 * labels and leaves, each section being padded to 4 bytes.
+	 *
+	 * @param output the output to write to
+	 * @throws IOException if the output fails
+	 */
+	public void write(DataOutputStream output) throws IOException {
+		int states = this.size();
+		int edges = this.labels.limit();
+		output.writeInt(states);
+		output.writeInt(edges);
+		for (int index = 0; index <= states; index++) {
+			output.writeInt(this.offsets.get(index));
+		}
+		for (int index = 0; index < edges; index++) {
+			output.writeInt(this.targets.get(index));
+		}
+		for (int index = 0; index < edges; index++) {
+			output.writeChar(this.labels.get(index));
+		}
+		pad(output, edges * 2);
+		for (int index = 0; index < states; index++) {
+			output.writeByte(this.leaves.get(index));
+		}
+		pad(output, states);
+	}
+
+	private static void pad(DataOutputStream output, int length) throws IOException {
+		for (int index = length; index % 4 != 0; index++) {
+			output.writeByte(0);
+		}
+	}
+
+	/**
+	 * reads a tree written by {@link #write(DataOutputStream)} without
+	 * copying it: the tree is a view over the buffer, whose position is
+	 * moved after the tree.
+	 *
+	 * The counts, offsets and targets are checked once here, so that a
+	 * corrupted bank fails to load rather than walking out of the buffers.
+	 *
+	 * @param buffer the buffer to read from
+	 * @return the tree
+	 * @throws IOException if the tree is truncated or inconsistent
+	 */
+	public static PackedTree read(ByteBuffer buffer) throws IOException {
+		if (buffer.remaining() < 8) {
+			throw new IOException("Truncated packed tree: " + buffer.remaining() + " bytes left");
+		}
+		int states = buffer.getInt();
+		int edges = buffer.getInt();
+		if (states < 1 || edges < 0) {
+			throw new IOException("Invalid packed tree counts: " + states + " states, " + edges + " edges");
+		}
+		long length = (states + 1L) * 4 + edges * 4L + padded(edges * 2L) + padded(states);
+		if (length > buffer.remaining()) {
+			throw new IOException("Truncated packed tree: " + length + " bytes expected, " + buffer.remaining() + " left");
+		}
+		IntBuffer offsets = slice(buffer, (states + 1) * 4, (states + 1) * 4).asIntBuffer();
+		IntBuffer targets = slice(buffer, edges * 4, edges * 4).asIntBuffer();
+		CharBuffer labels = slice(buffer, edges * 2, (int) padded(edges * 2L)).asCharBuffer();
+		ByteBuffer leaves = slice(buffer, states, (int) padded(states));
+		int previous = 0;
+		for (int state = 0; state <= states; state++) {
+			int offset = offsets.get(state);
+			if (offset < previous || (state == 0 && offset != 0)) {
+				throw new IOException("Invalid packed tree offset at state " + state + ": " + offset);
+			}
+			previous = offset;
+		}
+		if (previous != edges) {
+			throw new IOException("Invalid packed tree offsets: ending at " + previous + " of " + edges + " edges");
+		}
+		for (int edge = 0; edge < edges; edge++) {
+			int target = targets.get(edge);
+			if (target < 0 || target >= states) {
+				throw new IOException("Invalid packed tree target at edge " + edge + ": " + target);
+			}
+		}
+		return new PackedTree(offsets, labels, targets, leaves, 0);
+	}
+
+	private static ByteBuffer slice(ByteBuffer buffer, int length, int skip) {
+		ByteBuffer view = buffer.duplicate();
+		view.limit(buffer.position() + length);
+		buffer.position(buffer.position() + skip);
+		return view.slice();
+	}
+
+	private static long padded(long length) {
+		return (length + 3) & ~3L;
+	}
+
+	public int size() {
+		return this.leaves.limit();
+	}
+
+	/**
+	 * the size of the buffers, in bytes
+	 *
+	 * @return the number of bytes
+	 */
+	public long bytes() {
+		return (this.size() + 1) * 4L + this.labels.limit() * 6L + this.size();
+	}
+
+	int first(int state) {
+		return this.offsets.get(state);
+	}
+
+	int last(int state) {
+		return this.offsets.get(state + 1);
+	}
+
+	char label(int edge) {
+		return this.labels.get(edge);
+	}
+
+	int target(int edge) {
+		return this.targets.get(edge);
+	}
+
+	@Override
+	public int root() {
+		return this.state;
+	}
+
+	@Override
+	public boolean leaf(int state) {
+		return this.leaves.get(state) != 0;
+	}
+
+	@Override
+	public int get(int state, char item) {
+		int low = this.offsets.get(state);
+		int high = this.offsets.get(state + 1) - 1;
+		while (low <= high) {
+			int middle = (low + high) >>> 1;
+			char label = this.labels.get(middle);
+			if (label < item) {
+				low = middle + 1;
+			} else if (label > item) {
+				high = middle - 1;
+			} else {
+				return this.targets.get(middle);
+			}
+		}
+		return NONE;
+	}
+
+	@Override
+	public int getFolded(int state, char item) {
+		char folded = this.getFolding().fold(item);
+		return folded == CaseFolding.NONE ? NONE : this.get(state, folded);
+	}
+
+	/**
+	 * the folding of the chars into the labels of the trie, computed once
+	 *
+	 * @return the folding
+	 */
+	public CaseFolding getFolding() {
+		CaseFolding folding = this.folding;
+		if (folding == null) {
+			BitSet alphabet = new BitSet();
+			for (int edge = 0; edge < this.labels.limit(); edge++) {
+				alphabet.set(this.labels.get(edge));
+			}
+			folding = CaseFolding.of(alphabet);
+			this.folding = folding;
+		}
+		return folding;
+	}
+
+	@Override
+	public boolean leaf() {
+		return this.leaf(this.state);
+	}
+
+	@Override
+	public PackedTree get(Character item) {
+		int next = this.get(this.state, item.charValue());
+		if (next == NONE) {
+			return null;
+		} else {
+			return new PackedTree(this.offsets, this.labels, this.targets, this.leaves, next);
+		}
+	}
+
+}
@@ -0,0 +1,78 @@
+package uima.sandbox.lexer.models;
+
+/**
+ * The change of the spans of a text after an edit: a range of the
+ * previous spans replaced by new ones, the spans after the range being
+ * shifted by the change of the text length.
+ */
+public class SpanDelta {
+
+	private final int from;
+
+	private final int to;
+
+	private final Spans spans;
+
+	private final int shift;
+
+	public SpanDelta(int from, int to, Spans spans, int shift) {
+		this.from = from;
+		this.to = to;
+		this.spans = spans;
+		this.shift = shift;
+	}
+
+	/**
+	 * @return the index of the first previous span replaced
+	 */
+	public int getFrom() {
+		return this.from;
+	}
+
+	/**
+	 * @return the index after the last previous span replaced
+	 */
+	public int getTo() {
+		return this.to;
+	}
+
+	/**
+	 * @return the spans replacing the range, as offsets of the edited text
+	 */
+	public Spans getSpans() {
+		return this.spans;
+	}
+
+	/**
+	 * @return the shift of the spans after the range
+	 */
+	public int getShift() {
+		return this.shift;
+	}
+
+	/**
+	 * applies the change to the previous spans
+	 *
+	 * @param previous the spans of the text before the edit
+	 * @return the spans of the edited text
+	 */
+	public Spans apply(Spans previous) {
+		Spans spans = new Spans(previous.size() - (this.to - this.from) + this.spans.size());
+		for (int index = 0; index < this.from; index++) {
+			spans.span(previous.begin(index), previous.end(index));
+		}
+		for (int index = 0; index < this.spans.size(); index++) {
+			spans.span(this.spans.begin(index), this.spans.end(index));
+		}
+		for (int index = this.to; index < previous.size(); index++) {
+			spans.span(previous.begin(index) + this.shift, previous.end(index) + this.shift);
+		}
+		return spans;
+	}
+
+	@Override
+	public String toString() {
+		return "[" + this.from + ", " + this.to + ") -> " + this.spans + " >> " + this.shift;
+	}
+
+}
@@ -0,0 +1,10 @@
+package uima.sandbox.lexer.models;
+
+/**
+ * Receives the (begin, end) offsets of the spans found in a text.
+ */
+public interface SpanHandler {
+
+	public void span(int begin, int end);
+
+}
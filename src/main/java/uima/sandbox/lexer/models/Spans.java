@@ -0,0 +1,76 @@
+package uima.sandbox.lexer.models;
+
+import java.util.Arrays;
+
+/**
+ * A growable buffer of (begin, end) offset pairs, stored in a single int
+ * array so that spans cost no object.
+ */
+public class Spans implements SpanHandler {
+
+	private int[] offsets;
+
+	private int size;
+
+	public Spans() {
+		this(64);
+	}
+
+	public Spans(int capacity) {
+		this.offsets = new int[Integer.max(2, capacity * 2)];
+		this.size = 0;
+	}
+
+	@Override
+	public void span(int begin, int end) {
+		if (this.size * 2 == this.offsets.length) {
+			this.offsets = Arrays.copyOf(this.offsets, this.offsets.length * 2);
+		}
+		this.offsets[this.size * 2] = begin;
+		this.offsets[this.size * 2 + 1] = end;
+		this.size++;
+	}
+
+	public int size() {
+		return this.size;
+	}
+
+	public boolean isEmpty() {
+		return this.size == 0;
+	}
+
+	public int begin(int index) {
+		return this.offsets[index * 2];
+	}
+
+	public int end(int index) {
+		return this.offsets[index * 2 + 1];
+	}
+
+	public void clear() {
+		this.size = 0;
+	}
+
+	/**
+	 * removes the first spans, shifting the others down
+	 *
+	 * @param count the number of spans to remove
+	 */
+	public void drop(int count) {
+		System.arraycopy(this.offsets, count * 2, this.offsets, 0, (this.size - count) * 2);
+		this.size -= count;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder("[");
+		for (int index = 0; index < this.size; index++) {
+			if (index > 0) {
+				builder.append(", ");
+			}
+			builder.append(this.begin(index)).append('-').append(this.end(index));
+		}
+		return builder.append(']').toString();
+	}
+
+}
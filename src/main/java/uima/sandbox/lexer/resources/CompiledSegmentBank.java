@@ -0,0 +1,331 @@
+package uima.sandbox.lexer.resources;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBElement;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Unmarshaller;
+import javax.xml.transform.stream.StreamSource;
+
+import uima.sandbox.lexer.models.CaseFolding;
+import uima.sandbox.lexer.models.CharTree;
+import uima.sandbox.lexer.models.CompoundAutomaton;
+import uima.sandbox.lexer.models.GeneratedTree;
+import uima.sandbox.lexer.models.HashTree;
+import uima.sandbox.lexer.models.PackedTree;
+import uima.sandbox.lexer.models.Segment;
+import uima.sandbox.lexer.models.Segments;
+import uima.sandbox.lexer.models.Tree;
+
+/**
+ * The trees compiled from the content of a segment bank.
+ *
+ * Instances are immutable once built, automata and minimized trees aside
+ * which are derived lazily and thread-safely, so a single instance is
+ * shared by all the resources loading the same content, see
+ * {@link SegmentBankRegistry}.
+ *
+ * The packed trees are kept as tries, which the compound automata are
+ * built upon and which are stored, while the other trees are served as
+ * their minimal acyclic automata, the splitting only asking whether a
+ * segment is accepted, see {@link PackedTree#minimize()}. When
+ * {@value GeneratedTree#PROPERTY} is set as the bank is built, the served
+ * trees are also compiled into classes, which the tokenizers and the
+ * automata walk instead, see {@link GeneratedTree}.
+ */
+public final class CompiledSegmentBank {
+
+	/**
+	 * the first 4 bytes of a compiled segment bank, "SBNK" in ASCII
+	 */
+	public static final int MAGIC = 0x53424E4B;
+
+	private static final int VERSION = 1;
+
+	/**
+	 * the id of the tree the compound automata are built upon
+	 */
+	private static final String COMPOUND = "compound";
+
+	private final URI uri;
+
+	private final String checksum;
+
+	private final Segments model;
+
+	private final Map<String, PackedTree> packedTrees;
+
+	private final ConcurrentMap<String, PackedTree> minimizedTrees;
+
+	private final ConcurrentMap<String, CharTree> generatedTrees;
+
+	private final ConcurrentMap<String, CompoundAutomaton> automata;
+
+	private final boolean mapped;
+
+	private final boolean generate;
+
+	private final long loadTime;
+
+	private CompiledSegmentBank(URI uri, String checksum, Segments model, Map<String, PackedTree> packedTrees,
+			boolean mapped, long loadTime) {
+		this.uri = uri;
+		this.checksum = checksum;
+		this.model = model;
+		this.packedTrees = Collections.unmodifiableMap(packedTrees);
+		this.minimizedTrees = new ConcurrentHashMap<String, PackedTree>();
+		this.generatedTrees = new ConcurrentHashMap<String, CharTree>();
+		this.automata = new ConcurrentHashMap<String, CompoundAutomaton>();
+		this.mapped = mapped;
+		this.generate = GeneratedTree.isEnabled();
+		this.loadTime = loadTime;
+	}
+
+	/**
+	 * compiles the content of a bank, either XML or compiled
+	 *
+	 * @param uri the location of the bank, or null
+	 * @param checksum the checksum of the content
+	 * @param content the content of the bank
+	 * @return the compiled bank
+	 * @throws IOException if the content is malformed
+	 */
+	static CompiledSegmentBank load(URI uri, String checksum, ByteBuffer content) throws IOException {
+		long start = System.nanoTime();
+		if (content.remaining() >= 4 && content.getInt(content.position()) == MAGIC) {
+			Map<String, PackedTree> packedTrees = read(content.duplicate());
+			return new CompiledSegmentBank(uri, checksum, null, packedTrees, content.isDirect(),
+					System.nanoTime() - start);
+		} else {
+			Segments model = parse(content);
+			Map<String, HashTree<Character>> trees = compile(model);
+			Map<String, PackedTree> packedTrees = new HashMap<String, PackedTree>();
+			for (Map.Entry<String, HashTree<Character>> entry : trees.entrySet()) {
+				packedTrees.put(entry.getKey(), PackedTree.pack(entry.getValue()));
+			}
+			return new CompiledSegmentBank(uri, checksum, model, packedTrees, false,
+					System.nanoTime() - start);
+		}
+	}
+
+	private static Segments parse(ByteBuffer content) throws IOException {
+		byte[] bytes = new byte[content.remaining()];
+		content.duplicate().get(bytes);
+		try {
+			JAXBContext context = JAXBContext.newInstance(Segments.class);
+			Unmarshaller unmarshaller = context.createUnmarshaller();
+			StreamSource source = new StreamSource(new ByteArrayInputStream(bytes));
+			JAXBElement<Segments> root = unmarshaller.unmarshal(source, Segments.class);
+			return root.getValue();
+		} catch (JAXBException e) {
+			throw new IOException(e);
+		}
+	}
+
+	private static Map<String, HashTree<Character>> compile(Segments model) {
+		Map<String, HashTree<Character>> trees = new HashMap<String, HashTree<Character>>();
+		for (Segment segment : model.getSegment()) {
+			String type = segment.getType();
+			Boolean reverse = segment.isReverse();
+			String value = segment.getValue();
+			// tries are searched by lowercase chars only
+			addSegmentToTrees(trees, type, reverse, CaseFolding.fold(value));
+		}
+		return trees;
+	}
+
+	private static void addSegmentToTrees(Map<String, HashTree<Character>> trees, String type, Boolean reverse, String value) {
+		HashTree<Character> tree = trees.get(type);
+		if (tree == null) {
+			tree = new HashTree<Character>();
+			trees.put(type, tree);
+		}
+		if (reverse == null) {
+		    char[] cs = value.toCharArray();
+		    Character[] characters = new Character[cs.length];
+		    for (int index = 0; index < cs.length; index++) {
+		            characters[index] = new Character(cs[index]);
+		    }
+			tree.add(characters, 0, characters.length);
+		} else if (reverse.booleanValue()) {
+			String eulav = new StringBuffer(value).reverse().toString();
+		    char[] cs = eulav.toCharArray();
+		    Character[] characters = new Character[cs.length];
+		    for (int index = 0; index < cs.length; index++) {
+		            characters[index] = new Character(cs[index]);
+		    }
+			tree.add(characters, 0, characters.length);
+		} else {
+		    char[] cs = value.toCharArray();
+		    Character[] characters = new Character[cs.length];
+		    for (int index = 0; index < cs.length; index++) {
+		            characters[index] = new Character(cs[index]);
+		    }
+			tree.add(characters, 0, characters.length);
+		}
+	}
+
+	private static Map<String, PackedTree> read(ByteBuffer buffer) throws IOException {
+		buffer.getInt();
+		int version = buffer.getInt();
+		if (version != VERSION) {
+			throw new IOException("Unsupported compiled segment bank version: " + version);
+		}
+		int count = buffer.getInt();
+		Map<String, PackedTree> packedTrees = new HashMap<String, PackedTree>();
+		for (int index = 0; index < count; index++) {
+			char[] id = new char[buffer.getInt()];
+			for (int offset = 0; offset < id.length; offset++) {
+				id[offset] = buffer.getChar();
+			}
+			if (id.length % 2 != 0) {
+				buffer.getChar();
+			}
+			packedTrees.put(new String(id), PackedTree.read(buffer));
+		}
+		return packedTrees;
+	}
+
+	/**
+	 * writes the packed trees in the compiled format: the magic number, the
+	 * version and the number of trees, then each tree id and tree.
+	 *
+	 * @param outputStream the output stream
+	 * @throws IOException if the output stream fails
+	 */
+	public void storeCompiled(OutputStream outputStream) throws IOException {
+		DataOutputStream output = new DataOutputStream(new BufferedOutputStream(outputStream));
+		output.writeInt(MAGIC);
+		output.writeInt(VERSION);
+		output.writeInt(this.packedTrees.size());
+		for (Map.Entry<String, PackedTree> entry : new TreeMap<String, PackedTree>(this.packedTrees).entrySet()) {
+			String id = entry.getKey();
+			output.writeInt(id.length());
+			output.writeChars(id);
+			if (id.length() % 2 != 0) {
+				output.writeChar(0);
+			}
+			entry.getValue().write(output);
+		}
+		output.flush();
+	}
+
+	public Tree<Character> get(String id) {
+		return this.getCharTree(id);
+	}
+
+	/**
+	 * the minimal acyclic automaton of a tree, minimized on first use. It
+	 * walks and accepts like the tree, in a fraction of its size when
+	 * segments share their endings. The compound tree is served as a trie,
+	 * the failure links of its automata following single paths.
+	 *
+	 * @param id the id of the tree
+	 * @return the tree, or null
+	 */
+	public PackedTree getCharTree(String id) {
+		PackedTree tree = this.packedTrees.get(id);
+		if (tree == null || COMPOUND.equals(id)) {
+			return tree;
+		}
+		return this.minimizedTrees.computeIfAbsent(id, key -> tree.minimize());
+	}
+
+	/**
+	 * the tree of {@link #getCharTree(String)} compiled into a class on
+	 * first use if {@value GeneratedTree#PROPERTY} was set when the bank
+	 * was built and the tree has at most {@value GeneratedTree#MAX_STATES}
+	 * states, the tree itself otherwise or if it cannot be compiled
+	 *
+	 * @param id the id of the tree
+	 * @return the tree to walk, or null
+	 */
+	public CharTree getGeneratedTree(String id) {
+		PackedTree tree = this.getCharTree(id);
+		if (tree == null || !this.generate || tree.size() > GeneratedTree.MAX_STATES) {
+			return tree;
+		}
+		return this.generatedTrees.computeIfAbsent(id, key -> {
+			GeneratedTree generated = GeneratedTree.generate(tree);
+			return generated == null ? tree : generated;
+		});
+	}
+
+	public CompoundAutomaton getAutomaton(String id) {
+		return this.automata.computeIfAbsent(id, key -> {
+			PackedTree tree = this.packedTrees.get(key);
+			if (tree == null) {
+				return null;
+			} else if (this.getCharTree(key) == tree) {
+				return new CompoundAutomaton(tree, this.getGeneratedTree(key));
+			} else {
+				// the served tree is minimized, its states are not the trie's
+				return new CompoundAutomaton(tree);
+			}
+		});
+	}
+
+	Segments getModel() {
+		return this.model;
+	}
+
+	public URI getUri() {
+		return this.uri;
+	}
+
+	public String getChecksum() {
+		return this.checksum;
+	}
+
+	/**
+	 * whether the packed trees are views over a memory-mapped file
+	 *
+	 * @return true if the bank is mapped
+	 */
+	public boolean isMapped() {
+		return this.mapped;
+	}
+
+	public long getLoadTimeNanos() {
+		return this.loadTime;
+	}
+
+	/**
+	 * the footprint of the tries, mapped ones included, and of the
+	 * minimized trees built so far, in bytes.
+	 *
+	 * @return the estimated size
+	 */
+	public long getEstimatedSize() {
+		long size = 0;
+		for (PackedTree tree : this.packedTrees.values()) {
+			size += tree.bytes();
+		}
+		for (Map.Entry<String, PackedTree> entry : this.minimizedTrees.entrySet()) {
+			if (entry.getValue() != this.packedTrees.get(entry.getKey())) {
+				size += entry.getValue().bytes();
+			}
+		}
+		return size;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s [%s, %d bytes, %.1fms]", this.uri == null ? "<stream>" : this.uri,
+				this.checksum.substring(0, 12), this.getEstimatedSize(), this.loadTime / 1e6);
+	}
+
+}
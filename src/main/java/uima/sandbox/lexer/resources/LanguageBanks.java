@@ -0,0 +1,140 @@
+package uima.sandbox.lexer.resources;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Segment banks keyed by language, each one loaded on the first document
+ * of its language, so that only the languages seen cost memory. Banks are
+ * compiled through the {@link SegmentBankRegistry}, hence shared with the
+ * other resources loading them.
+ *
+ * A language tag such as fr-CA selects the bank of its exact tag, or else
+ * of its primary language, case aside.
+ */
+public class LanguageBanks {
+
+	private final Map<String, URI> locations;
+
+	private final ConcurrentMap<String, SegmentBankResource> banks;
+
+	/**
+	 * @param locations the locations of the banks by language
+	 */
+	public LanguageBanks(Map<String, URI> locations) {
+		this.locations = new LinkedHashMap<>();
+		for (Map.Entry<String, URI> location : locations.entrySet()) {
+			this.locations.put(normalize(location.getKey()), location.getValue());
+		}
+		this.banks = new ConcurrentHashMap<>();
+	}
+
+	/**
+	 * parses language=location entries, locations being either URLs or
+	 * file paths
+	 *
+	 * @param entries the entries
+	 * @return the banks of the entries
+	 * @throws IllegalArgumentException if an entry is malformed
+	 */
+	public static LanguageBanks parse(String... entries) {
+		Map<String, URI> locations = new LinkedHashMap<>();
+		for (String entry : entries) {
+			int separator = entry.indexOf('=');
+			if (separator <= 0 || separator == entry.length() - 1) {
+				throw new IllegalArgumentException("Expected language=location, found: " + entry);
+			}
+			String location = entry.substring(separator + 1).trim();
+			locations.put(entry.substring(0, separator).trim(), toUri(location));
+		}
+		return new LanguageBanks(locations);
+	}
+
+	/*
+	 * A location is a URL if it has a scheme longer than a drive letter, a
+	 * file path otherwise, colons and backslashes included.
+	 */
+	private static URI toUri(String location) {
+		try {
+			URI uri = new URI(location);
+			if (uri.getScheme() != null && uri.getScheme().length() > 1) {
+				return uri;
+			}
+		} catch (URISyntaxException e) {
+			// a path with chars a URI would escape
+		}
+		return Paths.get(location).toUri();
+	}
+
+	private static String normalize(String language) {
+		return language.toLowerCase(Locale.ROOT).replace('_', '-');
+	}
+
+	/**
+	 * the bank of a language, loaded on first request
+	 *
+	 * @param language the language tag, or null
+	 * @return the bank, or null if no bank is set for the language
+	 * @throws IOException if the bank cannot be loaded
+	 */
+	public SegmentBank get(String language) throws IOException {
+		String key = this.key(language);
+		if (key == null) {
+			return null;
+		}
+		try {
+			return this.banks.computeIfAbsent(key, this::load);
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+	}
+
+	private String key(String language) {
+		if (language == null) {
+			return null;
+		}
+		String tag = normalize(language);
+		if (this.locations.containsKey(tag)) {
+			return tag;
+		}
+		int separator = tag.indexOf('-');
+		if (separator > 0 && this.locations.containsKey(tag.substring(0, separator))) {
+			return tag.substring(0, separator);
+		}
+		return null;
+	}
+
+	private SegmentBankResource load(String language) {
+		SegmentBankResource bank = new SegmentBankResource();
+		try {
+			bank.load(this.locations.get(language));
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return bank;
+	}
+
+	/**
+	 * @param language the language tag
+	 * @return true if the bank of the language has been loaded
+	 */
+	public boolean isLoaded(String language) {
+		String key = this.key(language);
+		return key != null && this.banks.containsKey(key);
+	}
+
+	public Set<String> getLanguages() {
+		return Collections.unmodifiableSet(this.locations.keySet());
+	}
+
+}
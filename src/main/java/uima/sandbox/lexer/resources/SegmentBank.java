@@ -6,6 +6,9 @@ import java.io.OutputStream;
 
 import org.apache.uima.resource.SharedResourceObject;
 
+import uima.sandbox.lexer.models.CharTree;
+import uima.sandbox.lexer.models.CompoundAutomaton;
+import uima.sandbox.lexer.models.GeneratedTree;
 import uima.sandbox.lexer.models.Tree;
 
 public interface SegmentBank extends SharedResourceObject {
@@ -14,8 +17,42 @@ public interface SegmentBank extends SharedResourceObject {
 
 	public Tree<Character> get(String id);
 	
+	public CharTree getCharTree(String id);
+	
+	/**
+	 * the tree the tokenizers walk, compiled into a class when
+	 * {@value GeneratedTree#PROPERTY} is set, see {@link GeneratedTree}
+	 * 
+	 * @param id the id of the tree
+	 * @return the tree, or null
+	 */
+	public default CharTree getGeneratedTree(String id) {
+		return this.getCharTree(id);
+	}
+	
+	public CompoundAutomaton getAutomaton(String id);
+	
 	public void load(InputStream inputStream) throws IOException;
 	
 	public void store(OutputStream outputStream) throws IOException;
 	
+	/**
+	 * writes the compiled trees in a binary format that {@link #load(InputStream)}
+	 * detects and that is searched in place when memory-mapped from a file.
+	 * 
+	 * @param outputStream the output stream
+	 * @throws IOException if the output stream fails
+	 */
+	public void storeCompiled(OutputStream outputStream) throws IOException;
+	
+	/**
+	 * the current segments of the bank, unchanged by later reloads, so that
+	 * a document is tokenized with consistent segments.
+	 * 
+	 * @return the current segments
+	 */
+	public default SegmentBank snapshot() {
+		return this;
+	}
+	
 }
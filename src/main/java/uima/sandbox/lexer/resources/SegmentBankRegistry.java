@@ -0,0 +1,164 @@
+package uima.sandbox.lexer.resources;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The JVM-wide registry of compiled segment banks.
+ *
+ * Banks are keyed by their location and the SHA-256 checksum of their
+ * content, so that every resource of every pipeline loading the same bank
+ * shares a single compiled instance, while a changed file compiles anew.
+ * A location keeps the latest of its banks only: the bank it supersedes
+ * is dropped from the registry, and unmapped once the resources still
+ * holding it have reloaded.
+ */
+public final class SegmentBankRegistry {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(SegmentBankRegistry.class);
+
+	private static final ConcurrentMap<String, FutureTask<CompiledSegmentBank>> BANKS = new ConcurrentHashMap<>();
+
+	private static final ConcurrentMap<URI, String> LATEST = new ConcurrentHashMap<>();
+
+	private static final AtomicLong HITS = new AtomicLong(0);
+
+	private static final AtomicLong MISSES = new AtomicLong(0);
+
+	private SegmentBankRegistry() {
+	}
+
+	/**
+	 * gets the compiled bank of some content, compiling it on first request.
+	 * Concurrent requests of the same bank wait for a single compilation.
+	 *
+	 * @param uri the location of the bank, or null
+	 * @param content the content of the bank, either XML or compiled
+	 * @return the shared compiled bank
+	 * @throws IOException if the content is malformed
+	 */
+	public static CompiledSegmentBank load(URI uri, ByteBuffer content) throws IOException {
+		String checksum = checksum(content);
+		String key = uri + "#" + checksum;
+		FutureTask<CompiledSegmentBank> task = new FutureTask<>(() -> CompiledSegmentBank.load(uri, checksum, content));
+		FutureTask<CompiledSegmentBank> current = BANKS.putIfAbsent(key, task);
+		if (current == null) {
+			MISSES.incrementAndGet();
+			task.run();
+			current = task;
+		} else {
+			HITS.incrementAndGet();
+		}
+		try {
+			CompiledSegmentBank bank = current.get();
+			if (current == task) {
+				LOGGER.info("Compiled segment bank {}", bank);
+				if (uri != null) {
+					supersede(uri, key);
+				}
+			} else if (LOGGER.isDebugEnabled()) {
+				LOGGER.debug("Shared segment bank {}", bank);
+			}
+			return bank;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException(e);
+		} catch (ExecutionException e) {
+			BANKS.remove(key, current);
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			} else {
+				throw new IOException(e.getCause());
+			}
+		}
+	}
+
+	private static void supersede(URI uri, String key) {
+		String previous = LATEST.put(uri, key);
+		if (previous != null && !previous.equals(key) && BANKS.remove(previous) != null) {
+			LOGGER.debug("Dropped segment bank {} superseded by {}", previous, key);
+		}
+	}
+
+	private static String checksum(ByteBuffer content) {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			digest.update(content.duplicate());
+			StringBuilder builder = new StringBuilder();
+			for (byte item : digest.digest()) {
+				builder.append(String.format("%02x", item));
+			}
+			return builder.toString();
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * the banks compiled so far
+	 *
+	 * @return the compiled banks
+	 */
+	public static Collection<CompiledSegmentBank> banks() {
+		List<CompiledSegmentBank> banks = new ArrayList<>();
+		for (FutureTask<CompiledSegmentBank> task : BANKS.values()) {
+			if (task.isDone()) {
+				try {
+					banks.add(task.get());
+				} catch (InterruptedException | ExecutionException e) {
+					// failed compilations are not registered
+				}
+			}
+		}
+		return banks;
+	}
+
+	/**
+	 * the number of loads served by an already compiled bank
+	 *
+	 * @return the number of hits
+	 */
+	public static long getHits() {
+		return HITS.get();
+	}
+
+	/**
+	 * the number of loads that compiled a bank
+	 *
+	 * @return the number of misses
+	 */
+	public static long getMisses() {
+		return MISSES.get();
+	}
+
+	public static long getEstimatedSize() {
+		long size = 0;
+		for (CompiledSegmentBank bank : banks()) {
+			size += bank.getEstimatedSize();
+		}
+		return size;
+	}
+
+	public static long getLoadTimeNanos() {
+		long time = 0;
+		for (CompiledSegmentBank bank : banks()) {
+			time += bank.getLoadTimeNanos();
+		}
+		return time;
+	}
+
+}
@@ -1,113 +1,281 @@
 package uima.sandbox.lexer.resources;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.util.HashMap;
-import java.util.Map;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.TimeUnit;
 
 import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBElement;
 import javax.xml.bind.JAXBException;
 import javax.xml.bind.Marshaller;
-import javax.xml.bind.Unmarshaller;
-import javax.xml.transform.stream.StreamSource;
 
 import org.apache.uima.UIMAFramework;
 import org.apache.uima.resource.DataResource;
 import org.apache.uima.resource.ResourceInitializationException;
 import org.apache.uima.util.Level;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
-import uima.sandbox.lexer.models.HashTree;
-import uima.sandbox.lexer.models.Segment;
+import uima.sandbox.lexer.models.CharTree;
+import uima.sandbox.lexer.models.CompoundAutomaton;
+import uima.sandbox.lexer.models.PackedTree;
 import uima.sandbox.lexer.models.SegmentFactory;
 import uima.sandbox.lexer.models.Segments;
+import uima.sandbox.lexer.models.Tree;
 
+/**
+ * A segment bank resource, serving the bank compiled once per JVM by the
+ * {@link SegmentBankRegistry}.
+ *
+ * A bank loaded from a location can be reloaded from it, on demand or
+ * whenever its file changes. The new bank is compiled aside, then swapped
+ * in at once: the documents being tokenized keep the {@link #snapshot()}
+ * they started with. A file watched should be replaced by a move rather
+ * than rewritten in place, which the current bank, mapped from it, would
+ * see half done.
+ */
 public class SegmentBankResource implements SegmentBank {
 
-	private Map<String, HashTree<Character>> trees;
-		
+	private static final Logger LOGGER = LoggerFactory.getLogger(SegmentBankResource.class);
+
+	/**
+	 * The system property that makes resources watch their bank file as
+	 * soon as loaded, false by default.
+	 */
+	public static final String PROPERTY_WATCH = "uima.sandbox.lexer.watch";
+
+	private static final long SETTLE_MILLIS = 100;
+
+	private volatile CompiledSegmentBank bank;
+
+	private URI uri;
+
+	private volatile long version;
+
+	private volatile long reloadTimeNanos;
+
+	private volatile long reloadedAt;
+
+	private Watcher watcher;
+
+	public SegmentBankResource() {
+	}
+
+	private SegmentBankResource(CompiledSegmentBank bank) {
+		this.bank = bank;
+	}
+
+	public CompiledSegmentBank getCompiledBank() {
+		return this.bank;
+	}
+
 	@Override
-	public HashTree<Character> get(String id) {
-		return this.trees.get(id);
-	}
-	
-	private void compile() {
-		this.trees = new HashMap<String, HashTree<Character>>();
-		for (Segment segment : this.model.getSegment()) {
-			String type = segment.getType();
-			Boolean reverse = segment.isReverse();
-			String value = segment.getValue();
-			addSegmentToTrees(type, reverse, value); 			
-			if(!value.toLowerCase().equals(value))
-				addSegmentToTrees(type, reverse, value.toLowerCase()); 			
-		}
-	}
-
-	private void addSegmentToTrees(String type, Boolean reverse, String value) {
-		HashTree<Character> tree = this.trees.get(type);
-		if (tree == null) {
-			tree = new HashTree<Character>();
-			this.trees.put(type, tree);
-		}
-		if (reverse == null) {
-		    char[] cs = value.toCharArray();
-		    Character[] characters = new Character[cs.length];
-		    for (int index = 0; index < cs.length; index++) {
-		            characters[index] = new Character(cs[index]);
-		    }
-			tree.add(characters, 0, characters.length);
-		} else if (reverse.booleanValue()) {
-			String eulav = new StringBuffer(value).reverse().toString();
-		    char[] cs = eulav.toCharArray();
-		    Character[] characters = new Character[cs.length];
-		    for (int index = 0; index < cs.length; index++) {
-		            characters[index] = new Character(cs[index]);
-		    }
-			tree.add(characters, 0, characters.length);
-		} else {
-		    char[] cs = value.toCharArray();
-		    Character[] characters = new Character[cs.length];
-		    for (int index = 0; index < cs.length; index++) {
-		            characters[index] = new Character(cs[index]);
-		    }
-			tree.add(characters, 0, characters.length);
-		}
+	public Tree<Character> get(String id) {
+		return this.bank.get(id);
+	}
+
+	@Override
+	public PackedTree getCharTree(String id) {
+		return this.bank.getCharTree(id);
+	}
+
+	@Override
+	public CharTree getGeneratedTree(String id) {
+		return this.bank.getGeneratedTree(id);
 	}
-	
+
+	@Override
+	public CompoundAutomaton getAutomaton(String id) {
+		return this.bank.getAutomaton(id);
+	}
+
+	@Override
+	public SegmentBank snapshot() {
+		return new SegmentBankResource(this.bank);
+	}
+
 	@Override
 	public void load(DataResource data) throws ResourceInitializationException {
 		try {
-			this.load(data.getInputStream());
+			if (data.getUri() != null && "file".equals(data.getUri().getScheme())) {
+				this.load(data.getUri());
+			} else {
+				this.uri = data.getUri();
+				this.swap(SegmentBankRegistry.load(this.uri, read(data.getInputStream())), 0);
+			}
 		} catch (Exception e) {
 			UIMAFramework.getLogger().log(Level.INFO, "Error load SegmentBankResource: " + data.getUri());
 			throw new ResourceInitializationException(e);
 		}
 	}
-	
-	private Segments model;
-	
+
+	/**
+	 * loads the bank from a location, a file being mapped and watched if
+	 * {@value #PROPERTY_WATCH} is set
+	 *
+	 * @param uri the location of the bank
+	 * @throws IOException if the bank cannot be loaded
+	 */
+	public void load(URI uri) throws IOException {
+		this.uri = uri;
+		if ("file".equals(uri.getScheme())) {
+			this.swap(SegmentBankRegistry.load(uri, map(uri)), 0);
+			if (Boolean.getBoolean(PROPERTY_WATCH)) {
+				this.watch();
+			}
+		} else {
+			try (InputStream input = uri.toURL().openStream()) {
+				this.swap(SegmentBankRegistry.load(uri, read(input)), 0);
+			}
+		}
+	}
+
+	/*
+	 * Compiled banks are searched in place from the mapped file.
+	 */
+	private static ByteBuffer map(URI uri) throws IOException {
+		try (FileChannel channel = FileChannel.open(Paths.get(uri), StandardOpenOption.READ)) {
+			return channel.map(MapMode.READ_ONLY, 0, channel.size());
+		}
+	}
+
+	private static ByteBuffer read(InputStream input) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		byte[] chunk = new byte[8192];
+		int length;
+		while ((length = input.read(chunk)) != -1) {
+			bytes.write(chunk, 0, length);
+		}
+		return ByteBuffer.wrap(bytes.toByteArray());
+	}
+
+	/*
+	 * Detects compiled banks from their first bytes, XML ones otherwise.
+	 */
 	@Override
 	public void load(InputStream inputStream) throws IOException {
-		try {
-			JAXBContext context = JAXBContext.newInstance(Segments.class);
-			Unmarshaller unmarshaller = context.createUnmarshaller();
-			StreamSource source = new StreamSource(inputStream);
-			JAXBElement<Segments> root = unmarshaller.unmarshal(source, Segments.class);
-			this.model = root.getValue();
-			this.compile();
-		} catch (JAXBException e) {
-			throw new IOException(e);
+		this.swap(SegmentBankRegistry.load(null, read(inputStream)), 0);
+	}
+
+	/**
+	 * loads the bank anew from its location, keeping the current one if the
+	 * new one cannot be loaded. An unchanged bank is not swapped.
+	 *
+	 * @return true if the bank has changed
+	 * @throws IOException if the bank cannot be loaded
+	 * @throws IllegalStateException if the bank was not loaded from a location
+	 */
+	public synchronized boolean reload() throws IOException {
+		if (this.uri == null) {
+			throw new IllegalStateException("No location to reload the segment bank from");
 		}
+		long start = System.nanoTime();
+		CompiledSegmentBank bank;
+		if ("file".equals(this.uri.getScheme())) {
+			bank = SegmentBankRegistry.load(this.uri, map(this.uri));
+		} else {
+			try (InputStream input = this.uri.toURL().openStream()) {
+				bank = SegmentBankRegistry.load(this.uri, read(input));
+			}
+		}
+		if (bank == this.bank) {
+			return false;
+		}
+		this.swap(bank, System.nanoTime() - start);
+		LOGGER.info("Reloaded segment bank {} as version {} in {}ms", this.uri, this.version,
+				TimeUnit.NANOSECONDS.toMillis(this.reloadTimeNanos));
+		return true;
+	}
+
+	private synchronized void swap(CompiledSegmentBank bank, long nanos) {
+		this.bank = bank;
+		this.reloadTimeNanos = nanos;
+		this.reloadedAt = System.currentTimeMillis();
+		this.version++;
+	}
+
+	/**
+	 * reloads the bank in the background whenever its file changes
+	 *
+	 * @throws IOException if the file cannot be watched
+	 * @throws IllegalStateException if the bank was not loaded from a file
+	 */
+	public synchronized void watch() throws IOException {
+		if (this.uri == null || !"file".equals(this.uri.getScheme())) {
+			throw new IllegalStateException("No file to watch the segment bank from");
+		}
+		if (this.watcher == null) {
+			this.watcher = new Watcher(Paths.get(this.uri));
+			this.watcher.start();
+		}
+	}
+
+	/**
+	 * stops watching the file of the bank
+	 */
+	public synchronized void unwatch() {
+		if (this.watcher != null) {
+			this.watcher.close();
+			this.watcher = null;
+		}
+	}
+
+	public boolean isWatched() {
+		return this.watcher != null;
+	}
+
+	/**
+	 * @return the number of banks loaded, 1 before the first reload
+	 */
+	public long getVersion() {
+		return this.version;
+	}
+
+	/**
+	 * @return the time the last reload took, 0 before the first one
+	 */
+	public long getReloadTimeNanos() {
+		return this.reloadTimeNanos;
+	}
+
+	/**
+	 * @return the time the current bank was loaded at, in milliseconds
+	 * since the epoch
+	 */
+	public long getReloadedAt() {
+		return this.reloadedAt;
+	}
+
+	public URI getUri() {
+		return this.uri;
 	}
 
+	/*
+	 * Compiled banks have no XML model, hence nothing is stored.
+	 */
 	@Override
 	public void store(OutputStream outputStream) throws IOException {
-		if (this.model != null) {
+		Segments model = this.bank == null ? null : this.bank.getModel();
+		if (model != null) {
 			try {
 				SegmentFactory factory = new SegmentFactory();
 				JAXBContext context = JAXBContext.newInstance(Segments.class);
-				JAXBElement<Segments> element = factory.createSegments(this.model);
+				JAXBElement<Segments> element = factory.createSegments(model);
 				Marshaller marshaller = context.createMarshaller();
 				marshaller.setProperty("jaxb.formatted.output",Boolean.TRUE);
 				marshaller.marshal(element, outputStream);
@@ -117,4 +285,72 @@ public class SegmentBankResource implements SegmentBank {
 		}
 	}
 
+	@Override
+	public void storeCompiled(OutputStream outputStream) throws IOException {
+		if (this.bank != null) {
+			this.bank.storeCompiled(outputStream);
+		}
+	}
+
+	/**
+	 * A daemon thread watching the directory of the bank file, reloading
+	 * the bank once the events about the file settle.
+	 */
+	private class Watcher extends Thread {
+
+		private final Path file;
+
+		private final WatchService service;
+
+		Watcher(Path file) throws IOException {
+			super("segment-bank-watcher");
+			this.setDaemon(true);
+			this.file = file.toAbsolutePath();
+			this.service = FileSystems.getDefault().newWatchService();
+			this.file.getParent().register(this.service, StandardWatchEventKinds.ENTRY_CREATE,
+					StandardWatchEventKinds.ENTRY_MODIFY);
+		}
+
+		@Override
+		public void run() {
+			try {
+				WatchKey key = this.service.take();
+				while (true) {
+					boolean changed = false;
+					while (key != null) {
+						for (WatchEvent<?> event : key.pollEvents()) {
+							changed |= this.file.getFileName().equals(event.context());
+						}
+						key.reset();
+						key = this.service.poll(SETTLE_MILLIS, TimeUnit.MILLISECONDS);
+					}
+					if (changed) {
+						this.reload();
+					}
+					key = this.service.take();
+				}
+			} catch (InterruptedException | ClosedWatchServiceException e) {
+				// closed
+			}
+		}
+
+		private void reload() {
+			try {
+				SegmentBankResource.this.reload();
+			} catch (IOException | RuntimeException e) {
+				LOGGER.warn("Could not reload segment bank {}, keeping version {}: {}", this.file,
+						SegmentBankResource.this.version, e.toString());
+			}
+		}
+
+		void close() {
+			try {
+				this.service.close();
+			} catch (IOException e) {
+				LOGGER.warn("Could not close the watch of {}: {}", this.file, e.getMessage());
+			}
+		}
+
+	}
+
 }
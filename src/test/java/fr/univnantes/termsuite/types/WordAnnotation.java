@@ -0,0 +1,46 @@
+package fr.univnantes.termsuite.types;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.uima.jcas.JCas;
+import org.apache.uima.jcas.JCasRegistry;
+import org.apache.uima.jcas.cas.TOP_Type;
+import org.apache.uima.jcas.tcas.Annotation;
+
+/**
+ * The JCas cover of the word annotations of the test type system, as
+ * JCasGen writes it, without the accessors of the features. It counts the
+ * annotations created from their offsets, as the lexer creates covers.
+ */
+public class WordAnnotation extends Annotation {
+
+	public final static int typeIndexID = JCasRegistry.register(WordAnnotation.class);
+
+	public final static int type = typeIndexID;
+
+	public final static AtomicInteger created = new AtomicInteger();
+
+	@Override
+	public int getTypeIndexID() {
+		return typeIndexID;
+	}
+
+	protected WordAnnotation() {
+	}
+
+	public WordAnnotation(int addr, TOP_Type type) {
+		super(addr, type);
+	}
+
+	public WordAnnotation(JCas jcas) {
+		super(jcas);
+	}
+
+	public WordAnnotation(JCas jcas, int begin, int end) {
+		super(jcas);
+		setBegin(begin);
+		setEnd(end);
+		created.incrementAndGet();
+	}
+
+}
@@ -0,0 +1,43 @@
+package fr.univnantes.termsuite.types;
+
+import org.apache.uima.cas.Type;
+import org.apache.uima.cas.impl.CASImpl;
+import org.apache.uima.cas.impl.FSGenerator;
+import org.apache.uima.cas.impl.TypeImpl;
+import org.apache.uima.jcas.JCas;
+import org.apache.uima.jcas.cas.TOP;
+import org.apache.uima.jcas.tcas.Annotation_Type;
+
+/**
+ * The type of the JCas cover {@link WordAnnotation}, as JCasGen writes it.
+ */
+public class WordAnnotation_Type extends Annotation_Type {
+
+	public final static int typeIndexID = WordAnnotation.typeIndexID;
+
+	private final FSGenerator<TOP> fsGenerator = new FSGenerator<TOP>() {
+		@Override
+		public TOP createFS(int addr, CASImpl cas) {
+			if (WordAnnotation_Type.this.useExistingInstance) {
+				TOP fs = WordAnnotation_Type.this.jcas.getJfsFromCaddr(addr);
+				if (fs == null) {
+					fs = new WordAnnotation(addr, WordAnnotation_Type.this);
+					WordAnnotation_Type.this.jcas.putJfsFromCaddr(addr, fs);
+				}
+				return fs;
+			}
+			return new WordAnnotation(addr, WordAnnotation_Type.this);
+		}
+	};
+
+	public WordAnnotation_Type(JCas jcas, Type casType) {
+		super(jcas, casType);
+		casImpl.getFSClassRegistry().addGeneratorForType((TypeImpl) this.casType, getFSGenerator());
+	}
+
+	@Override
+	protected FSGenerator<?> getFSGenerator() {
+		return this.fsGenerator;
+	}
+
+}
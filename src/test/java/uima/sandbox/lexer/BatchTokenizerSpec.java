@@ -0,0 +1,241 @@
+package uima.sandbox.lexer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+import java.io.FileInputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.apache.uima.jcas.JCas;
+import org.apache.uima.resource.metadata.TypeSystemDescription;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import uima.sandbox.lexer.core.Tokenizer;
+import uima.sandbox.lexer.engines.BatchTokenizer;
+import uima.sandbox.lexer.models.Spans;
+import uima.sandbox.lexer.resources.SegmentBankResource;
+
+public class BatchTokenizerSpec {
+
+	private SegmentBankResource bank;
+
+	private List<String> documents;
+
+	private ExecutorService executor;
+
+	@Before
+	public void setup() throws Exception {
+		bank = new SegmentBankResource();
+		bank.load(new FileInputStream(Tests.FRENCH_BANK.toString()));
+		String text = Tests.readFile(Tests.DOCS.resolve("we-fr-100k.txt"));
+		documents = new ArrayList<>();
+		for (int begin = 0; begin < text.length(); begin += 997) {
+			documents.add(text.substring(begin, Integer.min(text.length(), begin + 997)));
+		}
+		executor = Executors.newFixedThreadPool(4);
+	}
+
+	@After
+	public void shutdown() {
+		executor.shutdown();
+	}
+
+	@Test
+	public void reportsTheSpansInTheOrderOfTheDocuments() throws Exception {
+		List<String> expected = new ArrayList<>();
+		for (String document : documents) {
+			Spans spans = new Spans();
+			new Tokenizer(bank).tokenize(document, spans);
+			expected.add(spans.toString());
+		}
+		BatchTokenizer tokenizer = new BatchTokenizer(bank, executor, 8);
+		assertThat(tokenizer.tokenize(documents.stream()).map(Spans::toString).collect(Collectors.toList()))
+				.isEqualTo(expected);
+	}
+
+	@Test
+	public void readsNoMoreDocumentsThanItsCapacityAhead() throws Exception {
+		AtomicInteger read = new AtomicInteger();
+		Iterator<String> source = documents.iterator();
+		Iterator<String> counted = new Iterator<String>() {
+			@Override
+			public boolean hasNext() {
+				return source.hasNext();
+			}
+
+			@Override
+			public String next() {
+				read.incrementAndGet();
+				return source.next();
+			}
+		};
+		Iterator<Spans> spans = new BatchTokenizer(bank, executor, 3).tokenize(counted);
+		for (int consumed = 1; consumed <= 10; consumed++) {
+			spans.next();
+			assertThat(read.get()).isLessThanOrEqualTo(consumed + 3);
+		}
+	}
+
+	@Test
+	public void annotatesPooledCasesLikeTheLexer() throws Exception {
+		List<List<String>> expected = new ArrayList<>();
+		for (String document : documents.subList(0, 20)) {
+			JCas cas = Tests.createCas(document);
+			Tests.getLexer(bank).process(cas);
+			expected.add(Tests.spans(cas));
+		}
+		List<List<String>> actual = new ArrayList<>();
+		Set<JCas> cases = Collections.newSetFromMap(new IdentityHashMap<>());
+		try (BatchTokenizer tokenizer = new BatchTokenizer(bank, executor, 2)) {
+			tokenizer.annotate(documents.subList(0, 20).iterator(), Tests.getTermSuiteTypeSystem(),
+					"fr.univnantes.termsuite.types.WordAnnotation", cas -> {
+						actual.add(Tests.spans(cas));
+						cases.add(cas);
+					});
+		}
+		assertThat(actual).isEqualTo(expected);
+		assertThat(cases.size()).isLessThanOrEqualTo(3);
+	}
+
+	@Test
+	public void reusesTheCasesOfTheTypeSystemAcrossBatches() throws Exception {
+		Set<JCas> first = Collections.newSetFromMap(new IdentityHashMap<>());
+		Set<JCas> second = Collections.newSetFromMap(new IdentityHashMap<>());
+		TypeSystemDescription typeSystem = Tests.getTermSuiteTypeSystem();
+		BatchTokenizer tokenizer = new BatchTokenizer(bank, executor, 2);
+		tokenizer.annotate(documents.subList(0, 10).iterator(), typeSystem,
+				"fr.univnantes.termsuite.types.WordAnnotation", first::add);
+		tokenizer.annotate(documents.subList(10, 20).iterator(), typeSystem,
+				"fr.univnantes.termsuite.types.WordAnnotation", second::add);
+		assertThat(first).containsAll(second);
+	}
+
+	/*
+	 * A document waiting for a latch when its task first reads it.
+	 */
+	private static class Blocking implements CharSequence {
+
+		private final String document;
+
+		private final CountDownLatch latch;
+
+		private final AtomicInteger started;
+
+		private final AtomicInteger interrupted;
+
+		private boolean read;
+
+		Blocking(String document, CountDownLatch latch, AtomicInteger started, AtomicInteger interrupted) {
+			this.document = document;
+			this.latch = latch;
+			this.started = started;
+			this.interrupted = interrupted;
+		}
+
+		private void await() {
+			if (!this.read) {
+				this.read = true;
+				this.started.incrementAndGet();
+				try {
+					this.latch.await();
+				} catch (InterruptedException e) {
+					this.interrupted.incrementAndGet();
+				}
+			}
+		}
+
+		@Override
+		public int length() {
+			this.await();
+			return this.document.length();
+		}
+
+		@Override
+		public char charAt(int index) {
+			this.await();
+			return this.document.charAt(index);
+		}
+
+		@Override
+		public CharSequence subSequence(int begin, int end) {
+			return this.document.subSequence(begin, end);
+		}
+
+		@Override
+		public String toString() {
+			this.await();
+			return this.document;
+		}
+
+	}
+
+	@Test
+	public void cancelsTheDocumentsAheadOfAFailingConsumer() throws Exception {
+		AtomicInteger started = new AtomicInteger();
+		AtomicInteger interrupted = new AtomicInteger();
+		List<CharSequence> blocking = blocking(new CountDownLatch(1), started, interrupted);
+		try {
+			new BatchTokenizer(bank, executor, 8).annotate(blocking.iterator(), Tests.getTermSuiteTypeSystem(),
+					"fr.univnantes.termsuite.types.WordAnnotation", cas -> {
+						throw new IllegalStateException("failed");
+					});
+			fail("consumed a failing consumer");
+		} catch (IllegalStateException e) {
+			executor.shutdown();
+			assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+			assertThat(interrupted.get()).isEqualTo(started.get());
+		}
+	}
+
+	private List<CharSequence> blocking(CountDownLatch latch, AtomicInteger started, AtomicInteger interrupted) {
+		List<CharSequence> blocking = new ArrayList<>();
+		blocking.add(documents.get(0));
+		for (String document : documents.subList(1, 10)) {
+			blocking.add(new Blocking(document, latch, started, interrupted));
+		}
+		return blocking;
+	}
+
+	@Test
+	public void cancelsTheDocumentsAheadOfAClosedBatch() throws Exception {
+		AtomicInteger started = new AtomicInteger();
+		AtomicInteger interrupted = new AtomicInteger();
+		try (BatchTokenizer.Batch<Spans> spans = new BatchTokenizer(bank, executor, 8)
+				.tokenize(blocking(new CountDownLatch(1), started, interrupted).iterator())) {
+			spans.next();
+		}
+		executor.shutdown();
+		assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+		assertThat(interrupted.get()).isEqualTo(started.get());
+	}
+
+	@Test
+	public void cancelsTheDocumentsAheadOfAClosedStream() throws Exception {
+		AtomicInteger started = new AtomicInteger();
+		AtomicInteger interrupted = new AtomicInteger();
+		AtomicInteger closed = new AtomicInteger();
+		try (Stream<Spans> spans = new BatchTokenizer(bank, executor, 8)
+				.tokenize(blocking(new CountDownLatch(1), started, interrupted).stream().onClose(closed::incrementAndGet))) {
+			assertThat(spans.findFirst()).isPresent();
+		}
+		executor.shutdown();
+		assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+		assertThat(interrupted.get()).isEqualTo(started.get());
+		assertThat(closed.get()).isEqualTo(1);
+	}
+
+}
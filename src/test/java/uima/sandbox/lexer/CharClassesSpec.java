@@ -0,0 +1,33 @@
+package uima.sandbox.lexer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.Test;
+
+import uima.sandbox.lexer.core.CharClasses;
+
+public class CharClassesSpec {
+
+	@Test
+	public void classifiesEveryCharLikeCharacter() {
+		for (int code = 0; code <= Character.MAX_VALUE; code++) {
+			char ch = (char) code;
+			assertThat(CharClasses.isWhitespace(ch)).as("whitespace %04x", code).isEqualTo(Character.isWhitespace(ch));
+			assertThat(CharClasses.isLetter(ch)).as("letter %04x", code).isEqualTo(Character.isLetter(ch));
+			assertThat(CharClasses.isDigit(ch)).as("digit %04x", code).isEqualTo(Character.isDigit(ch));
+			assertThat(CharClasses.isUpperCase(ch)).as("uppercase %04x", code).isEqualTo(Character.isUpperCase(ch));
+			assertThat(CharClasses.isLowerCase(ch)).as("lowercase %04x", code).isEqualTo(Character.isLowerCase(ch));
+		}
+	}
+
+	@Test
+	public void classifiesPunctuation() {
+		for (char ch : ".,;:!?'\"()[]{}-_«»¿¡…".toCharArray()) {
+			assertThat(CharClasses.isPunctuation(ch)).as("%s", ch).isTrue();
+		}
+		for (char ch : "aZé9 \t+$".toCharArray()) {
+			assertThat(CharClasses.isPunctuation(ch)).as("%s", ch).isFalse();
+		}
+	}
+
+}
@@ -0,0 +1,104 @@
+package uima.sandbox.lexer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import uima.sandbox.lexer.models.CompoundAutomaton;
+import uima.sandbox.lexer.models.GeneratedTree;
+import uima.sandbox.lexer.models.PackedTree;
+
+public class CompoundAutomatonSpec {
+
+	@Test
+	public void matchesLeftmostLongest() throws Exception {
+		CompoundAutomaton automaton = Tests.createBank("compound", "ab", "abcd", "bc", "cde").getAutomaton("compound");
+		assertThat(match(automaton, "abcde")).containsExactly("0-4");
+		assertThat(match(automaton, "abce")).containsExactly("0-2");
+		assertThat(match(automaton, "xbcde")).containsExactly("1-3");
+		assertThat(match(automaton, "ab cde")).containsExactly("0-2", "3-6");
+	}
+
+	@Test
+	public void matchesAfterAFailedPartialMatch() throws Exception {
+		CompoundAutomaton automaton = Tests.createBank("compound", "c'est-à-dire").getAutomaton("compound");
+		assertThat(match(automaton, "cc'est-à-dire")).containsExactly("1-13");
+		assertThat(match(automaton, "c'est-c'est-à-dire")).containsExactly("6-18");
+	}
+
+	@Test
+	public void matchesAtTheEndOfTheText() throws Exception {
+		CompoundAutomaton automaton = Tests.createBank("compound", "c'est-à-dire", "M.").getAutomaton("compound");
+		assertThat(match(automaton, "C'est-à-dire")).containsExactly("0-12");
+		assertThat(match(automaton, "Merci M.")).containsExactly("6-8");
+		assertThat(automaton.longest()).isEqualTo(12);
+	}
+
+	@Test
+	public void matchesLikeABruteForceSearch() throws Exception {
+		Random random = new Random(7);
+		for (int round = 0; round < 200; round++) {
+			String[] segments = new String[1 + random.nextInt(20)];
+			for (int index = 0; index < segments.length; index++) {
+				segments[index] = randomText(random, 1 + random.nextInt(5));
+			}
+			CompoundAutomaton automaton = Tests.createBank("compound", segments).getAutomaton("compound");
+			String text = randomText(random, 200);
+			assertThat(match(automaton, text)).as(text).isEqualTo(bruteForce(segments, text));
+		}
+	}
+
+	@Test
+	public void matchesThroughAGeneratedTree() throws Exception {
+		Random random = new Random(11);
+		for (int round = 0; round < 50; round++) {
+			String[] segments = new String[1 + random.nextInt(20)];
+			for (int index = 0; index < segments.length; index++) {
+				segments[index] = randomText(random, 1 + random.nextInt(5));
+			}
+			PackedTree tree = Tests.createBank("compound", segments).getCharTree("compound");
+			CompoundAutomaton automaton = new CompoundAutomaton(tree, GeneratedTree.generate(tree));
+			String text = randomText(random, 200);
+			assertThat(match(automaton, text)).as(text).isEqualTo(bruteForce(segments, text));
+		}
+	}
+
+	private static String randomText(Random random, int length) {
+		char[] chars = new char[length];
+		for (int index = 0; index < length; index++) {
+			chars[index] = "abc".charAt(random.nextInt(3));
+		}
+		return new String(chars);
+	}
+
+	private static List<String> bruteForce(String[] segments, String text) {
+		List<String> matches = new ArrayList<>();
+		int begin = 0;
+		while (begin < text.length()) {
+			int longest = 0;
+			for (String segment : segments) {
+				if (text.startsWith(segment, begin)) {
+					longest = Integer.max(longest, segment.length());
+				}
+			}
+			if (longest > 0) {
+				matches.add(begin + "-" + (begin + longest));
+				begin += longest;
+			} else {
+				begin++;
+			}
+		}
+		return matches;
+	}
+
+	private static List<String> match(CompoundAutomaton automaton, String text) {
+		List<String> matches = new ArrayList<>();
+		automaton.match(text, (begin, end) -> matches.add(begin + "-" + end));
+		return matches;
+	}
+
+}
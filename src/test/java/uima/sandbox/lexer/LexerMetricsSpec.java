@@ -0,0 +1,107 @@
+package uima.sandbox.lexer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import javax.management.openmbean.TabularData;
+
+import org.apache.uima.jcas.JCas;
+import org.junit.After;
+import org.junit.Test;
+
+import uima.sandbox.lexer.engines.Lexer;
+import uima.sandbox.lexer.metrics.DocumentMetrics;
+import uima.sandbox.lexer.metrics.Histogram;
+import uima.sandbox.lexer.metrics.LexerListener;
+import uima.sandbox.lexer.metrics.LexerMetrics;
+import uima.sandbox.lexer.metrics.Phase;
+
+public class LexerMetricsSpec {
+
+	private final List<DocumentMetrics> documents = new ArrayList<>();
+
+	private final LexerListener listener = documents::add;
+
+	private List<DocumentMetrics> process(boolean fused, String text) throws Exception {
+		LexerMetrics.getInstance().addListener(listener);
+		Lexer lexer = Tests.getLexer();
+		Tests.setParameter(lexer, "fused", fused);
+		Tests.setParameter(lexer, "metrics", true);
+		JCas cas = Tests.createCas(text);
+		lexer.process(cas);
+		assertThat(documents).hasSize(1);
+		assertThat(documents.get(0).getTokens()).isEqualTo(Tests.spans(cas).size());
+		return documents;
+	}
+
+	@After
+	public void removeListener() {
+		LexerMetrics.getInstance().removeListener(listener);
+	}
+
+	@Test
+	public void timesThePhasesOfTheMultiPassEngine() throws Exception {
+		DocumentMetrics document = process(false, "Ce c'est-à-dire reste.").get(0);
+		assertThat(document.getChars()).isEqualTo(22);
+		assertThat(document.getTokens()).isEqualTo(4);
+		assertThat(document.getCompounds()).isEqualTo(1);
+		for (Phase phase : Phase.values()) {
+			assertThat(document.getNanos(phase)).isPositive();
+		}
+	}
+
+	@Test
+	public void timesThePhasesOfTheSinglePassEngine() throws Exception {
+		DocumentMetrics document = process(true, "Ce c'est-à-dire reste.").get(0);
+		assertThat(document.getTokens()).isEqualTo(4);
+		assertThat(document.getCompounds()).isEqualTo(1);
+		assertThat(document.getNanos(Phase.TOKENIZE)).isPositive();
+		assertThat(document.getNanos(Phase.CLEAN)).isZero();
+	}
+
+	@Test
+	public void exposesTheMetricsThroughJmx() throws Exception {
+		process(false, "La mère Michèle a-t-elle perdu son chat?");
+		ObjectName name = new ObjectName(LexerMetrics.NAME);
+		assertThat((Long) ManagementFactory.getPlatformMBeanServer().getAttribute(name, "Documents")).isPositive();
+		assertThat((Double) ManagementFactory.getPlatformMBeanServer().getAttribute(name, "CharsPerSecond")).isPositive();
+		TabularData phases = (TabularData) ManagementFactory.getPlatformMBeanServer().getAttribute(name, "PhaseNanos");
+		CompositeData split = (CompositeData) phases.get(new Object[] { "split" }).get("value");
+		assertThat((Long) split.get("count")).isPositive();
+		assertThat(LexerMetrics.getInstance().getPhaseNanos().keySet()).containsExactly("tokenize", "split", "merge",
+				"clean", "index");
+	}
+
+	@Test
+	public void namesThePhasesWhateverTheLocale() throws Exception {
+		Locale locale = Locale.getDefault();
+		Locale.setDefault(new Locale("tr", "TR"));
+		try {
+			DocumentMetrics document = process(false, "Ce c'est-à-dire reste.").get(0);
+			assertThat(document.toString()).contains("split: ", "index: ");
+			assertThat(LexerMetrics.getInstance().getPhaseNanos()).containsKeys("split", "index");
+		} finally {
+			Locale.setDefault(locale);
+		}
+	}
+
+	@Test
+	public void boundsPercentiles() throws Exception {
+		Histogram histogram = new Histogram();
+		for (long nanos = 1; nanos <= 1000; nanos++) {
+			histogram.record(nanos * 1000);
+		}
+		assertThat(histogram.getCount()).isEqualTo(1000);
+		assertThat(histogram.getMax()).isEqualTo(1000000);
+		assertThat(histogram.getPercentile(50)).isBetween(500000L, 625000L);
+		assertThat(histogram.getPercentile(99)).isBetween(990000L, 1000000L);
+		assertThat(histogram.getPercentile(100)).isEqualTo(1000000);
+	}
+
+}
@@ -1,19 +1,184 @@
 package uima.sandbox.lexer;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import org.apache.uima.analysis_engine.AnalysisEngine;
+import org.apache.uima.cas.text.AnnotationFS;
+import org.apache.uima.fit.factory.AnalysisEngineFactory;
+import org.apache.uima.fit.factory.ExternalResourceFactory;
 import org.apache.uima.jcas.JCas;
+import org.apache.uima.jcas.tcas.Annotation;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
 
 import fr.univnantes.julestar.uima.testing.UIMATest;
+import fr.univnantes.termsuite.types.WordAnnotation;
 import uima.sandbox.lexer.engines.Lexer;
+import uima.sandbox.lexer.resources.SegmentBank;
+import uima.sandbox.lexer.resources.SegmentBankResource;
 
+@RunWith(Parameterized.class)
 public class LexerSpec {
 
+	@Parameters(name = "fused={0}")
+	public static Collection<Object[]> engines() {
+		return Arrays.asList(new Object[][] { { false }, { true } });
+	}
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private final boolean fused;
+
+	public LexerSpec(boolean fused) {
+		this.fused = fused;
+	}
+
+	private JCas tokenize(String string) throws Exception {
+		Lexer lexer = Tests.getLexer();
+		Tests.setParameter(lexer, "fused", fused);
+		JCas cas = Tests.createCas(string);
+		lexer.process(cas);
+		return cas;
+	}
+
+	@Test
+	public void producesTheTokensOfTheOtherEngineOnACorpus() throws Exception {
+		String text = Tests.readFile(Tests.DOCS.resolve("we-fr-100k.txt"));
+		Lexer lexer = Tests.getLexer();
+		Tests.setParameter(lexer, "fused", !fused);
+		JCas expected = Tests.createCas(text);
+		lexer.process(expected);
+		assertThat(Tests.spans(tokenize(text))).isEqualTo(Tests.spans(expected));
+	}
+
+	@Test
+	public void producesTheSameTokensInParallel() throws Exception {
+		String text = Tests.readFile(Tests.DOCS.resolve("we-fr-100k.txt"));
+		Lexer lexer = Tests.getLexer();
+		Tests.setParameter(lexer, "parallel", true);
+		Tests.setParameter(lexer, "chunkSize", 1000);
+		JCas actual = Tests.createCas(text);
+		lexer.process(actual);
+		assertThat(Tests.spans(actual)).isEqualTo(Tests.spans(tokenize(text)));
+	}
+
+	@Test
+	public void doesNotCutCompoundsInParallel() throws Exception {
+		String text = "Il est allé à la mer, pas à la montagne.\nÀ la mer  il reste.";
+		Lexer lexer = Tests.getLexer(Tests.createBank("compound", "à la mer", "pas à", "la"));
+		Tests.setParameter(lexer, "parallel", true);
+		Tests.setParameter(lexer, "chunkSize", 1);
+		JCas actual = Tests.createCas(text);
+		lexer.process(actual);
+		Lexer sequential = Tests.getLexer(Tests.createBank("compound", "à la mer", "pas à", "la"));
+		Tests.setParameter(sequential, "fused", fused);
+		JCas expected = Tests.createCas(text);
+		sequential.process(expected);
+		assertThat(Tests.spans(actual)).isEqualTo(Tests.spans(expected)).contains("12-20", "41-49");
+	}
+
+	@Test
+	public void indexesLikeASubclassCreatingItsOwnAnnotations() throws Exception {
+		String text = Tests.readFile(Tests.DOCS.resolve("we-fr-100k.txt")).substring(0, 20000);
+		Lexer lexer = new Lexer() {
+			@Override
+			protected AnnotationFS createAnnotation(JCas cas, int begin, int end) {
+				return super.createAnnotation(cas, begin, end);
+			}
+		};
+		Tests.setParameter(lexer, "type", "fr.univnantes.termsuite.types.WordAnnotation");
+		Tests.setParameter(lexer, "bank", Tests.createBank("compound", "à la", "de la"));
+		Tests.setParameter(lexer, "fused", fused);
+		JCas actual = Tests.createCas(text);
+		lexer.process(actual);
+		Lexer bulk = Tests.getLexer(Tests.createBank("compound", "à la", "de la"));
+		Tests.setParameter(bulk, "fused", fused);
+		JCas expected = Tests.createCas(text);
+		bulk.process(expected);
+		assertThat(Tests.spans(actual)).isEqualTo(Tests.spans(expected));
+	}
+
+	private List<String> annotations(boolean cover, String text) throws Exception {
+		Lexer lexer = Tests.getLexer();
+		Tests.setParameter(lexer, "fused", fused);
+		Tests.setParameter(lexer, "jcasCover", cover);
+		JCas cas = Tests.createCas(text);
+		int created = WordAnnotation.created.get();
+		lexer.process(cas);
+		List<String> spans = new ArrayList<>();
+		for (Annotation annotation : cas.getAnnotationIndex(WordAnnotation.type)) {
+			assertThat(annotation).isInstanceOf(WordAnnotation.class);
+			spans.add(annotation.getBegin() + "-" + annotation.getEnd());
+		}
+		assertThat(WordAnnotation.created.get() - created).isEqualTo(cover ? spans.size() : 0);
+		return spans;
+	}
+
+	@Test
+	public void createsJCasCoverAnnotations() throws Exception {
+		String text = "La mère Michèle a-t-elle perdu son chat, c'est-à-dire le sien?";
+		assertThat(annotations(true, text)).isEqualTo(annotations(false, text)).hasSize(13);
+	}
+
+	@Test
+	public void routesDocumentsToTheBankOfTheirLanguage() throws Exception {
+		File english = folder.newFile("english.xml");
+		try (OutputStream output = new FileOutputStream(english)) {
+			Tests.createBank("compound", "of course").store(output);
+		}
+		AnalysisEngine engine = AnalysisEngineFactory.createEngine(Lexer.class, Tests.getTermSuiteTypeSystem(),
+				Lexer.PARAM_TYPE, "fr.univnantes.termsuite.types.WordAnnotation",
+				Lexer.PARAM_FUSED, fused,
+				Lexer.PARAM_LANGUAGE_BANKS, new String[] { "en=" + english.getPath() },
+				SegmentBank.KEY_SEGMENT_BANK, ExternalResourceFactory.createExternalResourceDescription(
+						SegmentBankResource.class, Tests.FRENCH_BANK.toUri().toURL()));
+		String text = "Of course, c'est-à-dire.";
+		JCas cas = engine.newJCas();
+		cas.setDocumentText(text);
+		cas.setDocumentLanguage("en-GB");
+		engine.process(cas);
+		assertThat(Tests.spans(cas)).contains("0-9").doesNotContain("11-23");
+		cas.reset();
+		cas.setDocumentText(text);
+		cas.setDocumentLanguage("fr");
+		engine.process(cas);
+		assertThat(Tests.spans(cas)).contains("11-23").doesNotContain("0-9");
+	}
+
+	@Test
+	public void indexesTokensWithoutSplittingSegments() throws Exception {
+		Lexer lexer = Tests.getLexer(Tests.createBank("compound", "c'est-à-dire"));
+		Tests.setParameter(lexer, "fused", fused);
+		JCas cas = Tests.createCas("Ce c'est-à-dire reste.");
+		lexer.process(cas);
+		UIMATest.assertThat(cas)
+			.containsAnnotation("WordAnnotation", 0, 2)
+			.containsAnnotation("WordAnnotation", 3, 15)
+			.containsAnnotation("WordAnnotation", 16, 22)
+			.hasNAnnotationOfType("WordAnnotation", 3)
+			;
+	}
+
 	@Test
 	public void testCompound() throws Exception {
-		JCas cas = Tests.tokenize("Ce c'est-à-dire reste.");
+		JCas cas = tokenize("Ce c'est-à-dire reste.");
 		UIMATest.assertThat(cas)
 		.containsAnnotation("WordAnnotation", 0, 2)
 		.containsAnnotation("WordAnnotation", 3, 15)
@@ -25,7 +190,7 @@ public class LexerSpec {
 
 	@Test
 	public void supportAbbreviations() throws Exception {
-		JCas cas = Tests.tokenize("Dupont va à la C.A.F. pour");
+		JCas cas = tokenize("Dupont va à la C.A.F. pour");
 		UIMATest.assertThat(cas)
 			.containsAnnotation("WordAnnotation", 0, 6)
 			.containsAnnotation("WordAnnotation", 7, 9)
@@ -39,7 +204,7 @@ public class LexerSpec {
 
 	@Test
 	public void supportTitle() throws Exception {
-		JCas cas = Tests.tokenize("M. Dupont.");
+		JCas cas = tokenize("M. Dupont.");
 		UIMATest.assertThat(cas)
 		.containsAnnotation("WordAnnotation", 0, 2)
 		.containsAnnotation("WordAnnotation", 3, 9)
@@ -63,9 +228,42 @@ public class LexerSpec {
 		assertTrue(lexer.isAbbreviation("Cas.Aed.Fs."));
 	}
 
+	@Test
+	public void detectsAbbreviationsLikeThePattern() throws Exception {
+		Pattern pattern = Pattern.compile("^[A-Z][a-z]*\\.([A-Z][a-z]*\\.)+$");
+		Lexer lexer = Tests.getLexer();
+		Random random = new Random(42);
+		String chars = "AZaz.é\n\r\u0085 ";
+		for (int index = 0; index < 100000; index++) {
+			StringBuilder string = new StringBuilder();
+			for (int length = random.nextInt(9); length > 0; length--) {
+				string.append(chars.charAt(random.nextInt(chars.length())));
+			}
+			assertThat(lexer.isAbbreviation(string.toString())).as(string.toString())
+				.isEqualTo(pattern.matcher(string).find());
+		}
+	}
+
+	@Test
+	public void supportAbbreviationLexicon() throws Exception {
+		Lexer lexer = Tests.getLexer(Tests.extendBank("abbreviation", "etc.", "cf.", "p.ex."));
+		Tests.setParameter(lexer, "fused", fused);
+		JCas cas = Tests.createCas("Des fruits, etc. (cf. Etc. p.ex.)");
+		lexer.process(cas);
+		UIMATest.assertThat(cas)
+			.containsAnnotation("WordAnnotation", 12, 16)
+			.containsAnnotation("WordAnnotation", 17, 18)
+			.containsAnnotation("WordAnnotation", 18, 21)
+			.containsAnnotation("WordAnnotation", 22, 26)
+			.containsAnnotation("WordAnnotation", 27, 32)
+			.containsAnnotation("WordAnnotation", 32, 33)
+			.hasNAnnotationOfType("WordAnnotation", 9)
+			;
+	}
+
 	@Test
 	public void doNotSplitSentencesWhenSpaceMissingNormal() throws Exception {
-		JCas cas = Tests.tokenize("Je vais bien.Tout va bien.");
+		JCas cas = tokenize("Je vais bien.Tout va bien.");
 		UIMATest.assertThat(cas)
 			.containsAnnotation("WordAnnotation", 0, 2)
 			.containsAnnotation("WordAnnotation", 3, 7)
@@ -80,7 +278,7 @@ public class LexerSpec {
 
 	@Test
 	public void processNormal() throws Exception {
-		JCas cas = Tests.tokenize("La mère Michèle.");
+		JCas cas = tokenize("La mère Michèle.");
 		UIMATest.assertThat(cas)
 			.containsAnnotation("WordAnnotation", 0, 2)
 			.containsAnnotation("WordAnnotation", 3, 7)
@@ -92,7 +290,7 @@ public class LexerSpec {
 
 	@Test
 	public void processLastSingleToken() throws Exception {
-		JCas cas = Tests.tokenize("La .");
+		JCas cas = tokenize("La .");
 		UIMATest.assertThat(cas)
 			.containsAnnotation("WordAnnotation", 0, 2)
 			.containsAnnotation("WordAnnotation", 3, 4)
@@ -102,7 +300,7 @@ public class LexerSpec {
 
 	@Test
 	public void doNotprocessLastWhitespaces() throws Exception {
-		JCas cas = Tests.tokenize("La la ");
+		JCas cas = tokenize("La la ");
 		UIMATest.assertThat(cas)
 			.containsAnnotation("WordAnnotation", 0, 2)
 			.containsAnnotation("WordAnnotation", 3, 5)
@@ -112,7 +310,7 @@ public class LexerSpec {
 
 
 	public void processLastSize2Token() throws Exception {
-		JCas cas = Tests.tokenize("La li");
+		JCas cas = tokenize("La li");
 		UIMATest.assertThat(cas)
 			.containsAnnotation("WordAnnotation", 0, 2)
 			.containsAnnotation("WordAnnotation", 3, 5)
@@ -123,7 +321,7 @@ public class LexerSpec {
 	
 	@Test
 	public void processWithSuffix() throws Exception {
-		JCas cas = Tests.tokenize("La mère Michèle a-t-elle perdu son chat?");
+		JCas cas = tokenize("La mère Michèle a-t-elle perdu son chat?");
 		UIMATest.assertThat(cas)
 			.containsAnnotation("WordAnnotation", 0, 2)
 			.containsAnnotation("WordAnnotation", 3, 7)
@@ -134,9 +332,23 @@ public class LexerSpec {
 			;
 	}
 	
+	@Test
+	public void processWithSuffixShorterThanTheWalk() throws Exception {
+		// "-elle" is a suffix, walked on to "-t-elle" before failing
+		JCas cas = tokenize("Oui, dit-elle.");
+		UIMATest.assertThat(cas)
+			.containsAnnotation("WordAnnotation", 0, 3)
+			.containsAnnotation("WordAnnotation", 3, 4)
+			.containsAnnotation("WordAnnotation", 5, 8)
+			.containsAnnotation("WordAnnotation", 8, 13)
+			.containsAnnotation("WordAnnotation", 13, 14)
+			.hasNAnnotationOfType("WordAnnotation", 5)
+			;
+	}
+	
 	@Test
 	public void processWithPrefix() throws Exception {
-		JCas cas = Tests.tokenize("Fermé jusqu'à demain.");
+		JCas cas = tokenize("Fermé jusqu'à demain.");
 		UIMATest.assertThat(cas)
 			.containsAnnotation("WordAnnotation", 0, 5)
 			.containsAnnotation("WordAnnotation", 6, 12)
@@ -150,7 +362,7 @@ public class LexerSpec {
 	
 	@Test
 	public void processWithPrefixAndDoubleSuffix() throws Exception {
-		JCas cas = Tests.tokenize("Tout (va-t-il) bien?");
+		JCas cas = tokenize("Tout (va-t-il) bien?");
 		UIMATest.assertThat(cas)
 			.containsAnnotation("WordAnnotation", 0, 4)
 			.containsAnnotation("WordAnnotation", 5, 6)
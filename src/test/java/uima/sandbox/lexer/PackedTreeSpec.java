@@ -0,0 +1,216 @@
+package uima.sandbox.lexer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import uima.sandbox.lexer.models.CaseFolding;
+import uima.sandbox.lexer.models.CharTree;
+import uima.sandbox.lexer.models.GeneratedTree;
+import uima.sandbox.lexer.models.PackedTree;
+import uima.sandbox.lexer.models.Tree;
+import uima.sandbox.lexer.resources.SegmentBankResource;
+
+public class PackedTreeSpec {
+
+	private static final String[] IDS = { "initial", "final", "compound" };
+
+	private SegmentBankResource bank;
+
+	@Before
+	public void setup() throws Exception {
+		bank = new SegmentBankResource();
+		bank.load(new FileInputStream(Tests.FRENCH_BANK.toString()));
+	}
+
+	@Test
+	public void packsEveryTreeOfTheBank() throws Exception {
+		for (String id : IDS) {
+			assertThat(bank.get(id)).as(id).isNotNull();
+			assertThat(bank.getCharTree(id)).as(id).isNotNull();
+		}
+		assertThat(bank.getCharTree("unknown")).isNull();
+	}
+
+	@Test
+	public void walksLikeTheHashTree() throws Exception {
+		String alphabet = "-'.()«»ctelsqu'à-dirM ";
+		Random random = new Random(42);
+		for (String id : IDS) {
+			Tree<Character> tree = bank.get(id);
+			CharTree packed = bank.getCharTree(id);
+			for (int count = 0; count < 10000; count++) {
+				char[] word = new char[1 + random.nextInt(12)];
+				for (int index = 0; index < word.length; index++) {
+					word[index] = alphabet.charAt(random.nextInt(alphabet.length()));
+				}
+				assertSameWalk(tree, packed, word);
+			}
+			assertSameWalk(tree, packed, "c'est-à-dire".toCharArray());
+			assertSameWalk(tree, packed, "elle-t-".toCharArray());
+			assertSameWalk(tree, packed, "jusqu'".toCharArray());
+		}
+	}
+
+	@Test
+	public void walksAsATree() throws Exception {
+		PackedTree packed = bank.getCharTree("compound");
+		Tree<Character> node = packed;
+		for (char ch : "c'est-à-dire".toCharArray()) {
+			assertThat(node.leaf()).isFalse();
+			node = node.get(ch);
+			assertThat(node).isNotNull();
+		}
+		assertThat(node.leaf()).isTrue();
+		assertThat(node.get('x')).isNull();
+	}
+
+	@Test
+	public void holdsLowercaseSegmentsOnlyAndFoldsTheText() throws Exception {
+		PackedTree packed = Tests.createBank("compound", "Ave Maria", "ave maria").getCharTree("compound");
+		assertThat(packed.get(packed.root(), 'A')).isEqualTo(CharTree.NONE);
+		assertThat(packed.get(packed.root(), 'a')).isNotEqualTo(CharTree.NONE);
+		assertThat(packed.size()).isEqualTo("ave maria".length() + 1);
+		int state = packed.root();
+		for (char ch : "AVE MaRiA".toCharArray()) {
+			state = packed.getFolded(state, ch);
+		}
+		assertThat(packed.leaf(state)).isTrue();
+		CaseFolding folding = packed.getFolding();
+		assertThat(folding.fold('M')).isEqualTo('m');
+		assertThat(folding.fold('z')).isEqualTo(CaseFolding.NONE);
+		assertThat(folding.fold('\u4e00')).isEqualTo(CaseFolding.NONE);
+		assertThat(folding.bytes()).isLessThan(1024);
+	}
+
+	@Test
+	public void foldsCharsBeyondLatin1WithoutATableUpToThem() throws Exception {
+		CaseFolding folding = Tests.createBank("compound", "kilo œuvre", "aujourd’hui").getCharTree("compound").getFolding();
+		assertThat(folding.fold('K')).isEqualTo('k');
+		assertThat(folding.fold('K')).isEqualTo('k');
+		assertThat(folding.fold('Œ')).isEqualTo('œ');
+		assertThat(folding.fold('’')).isEqualTo('’');
+		assertThat(folding.fold('‘')).isEqualTo(CaseFolding.NONE);
+		assertThat(folding.fold('ÿ')).isEqualTo(CaseFolding.NONE);
+		assertThat(folding.bytes()).isLessThan(1024);
+	}
+
+	@Test
+	public void minimizesIntoAnAutomatonSharingTheEndings() throws Exception {
+		String[] segments = { "celui-ci", "celle-ci", "ceux-ci", "celui-là", "celle-là", "ceux-là", "cela" };
+		PackedTree tree = Tests.createBank("compound", segments).getCharTree("compound");
+		PackedTree minimized = tree.minimize();
+		assertThat(minimized.size()).isLessThan(tree.size() / 2);
+		assertThat(minimized.minimize()).isSameAs(minimized);
+		for (String segment : segments) {
+			assertThat(accepts(minimized, segment)).as(segment).isTrue();
+		}
+		for (String other : new String[] { "celui", "celui-", "cel", "ceux-cila", "celle-l", "" }) {
+			assertThat(accepts(minimized, other)).as(other).isFalse();
+		}
+	}
+
+	@Test
+	public void generatesAClassWalkingLikeTheTree() throws Exception {
+		String[] segments = new String[3000];
+		for (int index = 0; index < segments.length; index++) {
+			segments[index] = "mot" + index + " " + Integer.toString(index * 7919, 36);
+		}
+		PackedTree large = Tests.createBank("compound", segments).getCharTree("compound");
+		assertThat(large.size()).isGreaterThan(10000);
+		Random random = new Random(42);
+		for (PackedTree tree : new PackedTree[] { bank.getCharTree("initial"), bank.getCharTree("final"),
+				bank.getCharTree("compound"), large }) {
+			GeneratedTree generated = GeneratedTree.generate(tree);
+			assertThat(generated).isNotNull();
+			assertThat(generated.getTree()).isSameAs(tree);
+			int differences = 0;
+			for (int state = 0; state < tree.size(); state++) {
+				differences += generated.leaf(state) == tree.leaf(state) ? 0 : 1;
+				for (char ch = 0; ch < 128; ch++) {
+					differences += generated.get(state, ch) == tree.get(state, ch) ? 0 : 1;
+				}
+				char ch = (char) random.nextInt(Character.MAX_VALUE + 1);
+				differences += generated.get(state, ch) == tree.get(state, ch) ? 0 : 1;
+				differences += generated.getFolded(state, 'A') == tree.getFolded(state, 'A') ? 0 : 1;
+			}
+			assertThat(differences).isZero();
+			assertThat(generated.get(tree.size(), 'a')).isEqualTo(CharTree.NONE);
+		}
+		GeneratedTree generated = GeneratedTree.generate(large);
+		for (String segment : segments) {
+			assertThat(accepts(generated, segment)).as(segment).isTrue();
+		}
+	}
+
+	@Test
+	public void rejectsACorruptedBufferOnRead() throws Exception {
+		PackedTree tree = bank.getCharTree("final");
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		tree.write(new DataOutputStream(bytes));
+		byte[] written = bytes.toByteArray();
+		PackedTree read = PackedTree.read(ByteBuffer.wrap(written));
+		assertThat(read.size()).isEqualTo(tree.size());
+		int states = tree.size();
+		int edges = ByteBuffer.wrap(written).getInt(4);
+		int offsets = 8;
+		int targets = offsets + (states + 1) * 4;
+		assertRejected(Arrays.copyOf(written, written.length - 1));
+		assertRejected(corrupt(written, 0, -1));
+		assertRejected(corrupt(written, 4, Integer.MAX_VALUE / 2));
+		assertRejected(corrupt(written, offsets, 1));
+		assertRejected(corrupt(written, offsets + states * 4, edges - 1));
+		assertRejected(corrupt(written, offsets + 4, edges + 1));
+		assertRejected(corrupt(written, targets, states));
+		assertRejected(corrupt(written, targets + (edges - 1) * 4, -1));
+	}
+
+	private static byte[] corrupt(byte[] bytes, int offset, int value) {
+		byte[] corrupted = bytes.clone();
+		ByteBuffer.wrap(corrupted).putInt(offset, value);
+		return corrupted;
+	}
+
+	private static void assertRejected(byte[] bytes) {
+		try {
+			PackedTree.read(ByteBuffer.wrap(bytes));
+			fail("read a corrupted tree");
+		} catch (IOException e) {
+			assertThat(e).hasMessageContaining("packed tree");
+		}
+	}
+
+	private boolean accepts(CharTree tree, String segment) {
+		int state = tree.root();
+		for (int index = 0; index < segment.length() && state != CharTree.NONE; index++) {
+			state = tree.get(state, segment.charAt(index));
+		}
+		return state != CharTree.NONE && tree.leaf(state);
+	}
+
+	private void assertSameWalk(Tree<Character> tree, CharTree packed, char[] word) {
+		Tree<Character> node = tree;
+		int state = packed.root();
+		for (char ch : word) {
+			node = node.get(ch);
+			state = packed.get(state, ch);
+			if (node == null) {
+				assertThat(state).as(new String(word)).isEqualTo(CharTree.NONE);
+				return;
+			}
+			assertThat(state).as(new String(word)).isNotEqualTo(CharTree.NONE);
+			assertThat(packed.leaf(state)).as(new String(word)).isEqualTo(node.leaf());
+		}
+	}
+
+}
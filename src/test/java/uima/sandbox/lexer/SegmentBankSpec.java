@@ -0,0 +1,292 @@
+package uima.sandbox.lexer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.uima.jcas.JCas;
+import org.apache.uima.resource.DataResource;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Mockito;
+
+import uima.sandbox.lexer.models.CharTree;
+import uima.sandbox.lexer.models.GeneratedTree;
+import uima.sandbox.lexer.models.PackedTree;
+import uima.sandbox.lexer.resources.CompiledSegmentBank;
+import uima.sandbox.lexer.resources.LanguageBanks;
+import uima.sandbox.lexer.resources.SegmentBank;
+import uima.sandbox.lexer.resources.SegmentBankRegistry;
+import uima.sandbox.lexer.resources.SegmentBankResource;
+
+public class SegmentBankSpec {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private SegmentBankResource bank;
+
+	private String text;
+
+	@Before
+	public void setup() throws Exception {
+		bank = new SegmentBankResource();
+		bank.load(new FileInputStream(Tests.FRENCH_BANK.toString()));
+		text = Tests.readFile(Tests.DOCS.resolve("we-fr-100k.txt")).substring(0, 20000);
+	}
+
+	private byte[] compile(SegmentBank bank) throws Exception {
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		bank.storeCompiled(output);
+		return output.toByteArray();
+	}
+
+	private File write(byte[] bytes) throws Exception {
+		File file = folder.newFile();
+		try (OutputStream output = new FileOutputStream(file)) {
+			output.write(bytes);
+		}
+		return file;
+	}
+
+	private SegmentBankResource load(File file) throws Exception {
+		DataResource data = Mockito.mock(DataResource.class);
+		Mockito.when(data.getUri()).thenReturn(file.toURI());
+		Mockito.when(data.getInputStream()).thenReturn(new FileInputStream(file));
+		SegmentBankResource resource = new SegmentBankResource();
+		resource.load(data);
+		return resource;
+	}
+
+	private void assertSameTokens(SegmentBank compiled) throws Exception {
+		JCas expected = Tests.createCas(text);
+		Tests.getLexer(bank).process(expected);
+		JCas actual = Tests.createCas(text);
+		Tests.getLexer(compiled).process(actual);
+		assertThat(Tests.spans(actual)).isEqualTo(Tests.spans(expected));
+	}
+
+	@Test
+	public void storesACompiledBank() throws Exception {
+		byte[] bytes = compile(bank);
+		assertThat(ByteBuffer.wrap(bytes).getInt()).isEqualTo(CompiledSegmentBank.MAGIC);
+		assertThat(bytes.length % 4).isZero();
+	}
+
+	@Test
+	public void loadsACompiledBankFromAStream() throws Exception {
+		SegmentBankResource compiled = new SegmentBankResource();
+		compiled.load(new ByteArrayInputStream(compile(bank)));
+		CharTree tree = compiled.getCharTree("final");
+		int state = tree.root();
+		for (char ch : "elle-t-".toCharArray()) {
+			state = tree.get(state, ch);
+		}
+		assertThat(tree.leaf(state)).isTrue();
+		assertThat(compiled.get("compound")).isInstanceOf(PackedTree.class);
+		assertThat(compile(compiled)).isEqualTo(compile(bank));
+		assertSameTokens(compiled);
+	}
+
+	@Test
+	public void mapsACompiledBankFromAFile() throws Exception {
+		SegmentBankResource compiled = load(write(compile(bank)));
+		assertThat(compile(compiled)).isEqualTo(compile(bank));
+		assertSameTokens(compiled);
+	}
+
+	@Test
+	public void loadsAnXmlBankFromAFile() throws Exception {
+		SegmentBankResource xml = load(Tests.FRENCH_BANK.toFile());
+		PackedTree suffixes = xml.getCharTree("final");
+		assertThat(suffixes.minimize()).isSameAs(suffixes);
+		assertThat(xml.get("final")).isSameAs(suffixes);
+		PackedTree compound = xml.getCharTree("compound");
+		assertThat(compound.minimize().size()).isLessThan(compound.size());
+		assertSameTokens(xml);
+	}
+
+	@Test
+	public void sharesCompiledBanksAcrossResources() throws Exception {
+		File file = write(compile(bank));
+		long hits = SegmentBankRegistry.getHits();
+		SegmentBankResource first = load(file);
+		SegmentBankResource second = load(file);
+		assertThat(second.getCompiledBank()).isSameAs(first.getCompiledBank());
+		assertThat(first.getCompiledBank().isMapped()).isTrue();
+		assertThat(SegmentBankRegistry.getHits()).isGreaterThan(hits);
+		assertThat(SegmentBankRegistry.banks()).contains(first.getCompiledBank());
+		assertThat(SegmentBankRegistry.getEstimatedSize()).isGreaterThanOrEqualTo(first.getCompiledBank().getEstimatedSize());
+	}
+
+	@Test
+	public void compilesChangedContentAnew() throws Exception {
+		SegmentBankResource first = Tests.createBank("compound", "a", "b");
+		SegmentBankResource second = Tests.createBank("compound", "a", "c");
+		assertThat(second.getCompiledBank()).isNotSameAs(first.getCompiledBank());
+		assertThat(second.getCompiledBank().getChecksum()).isNotEqualTo(first.getCompiledBank().getChecksum());
+	}
+
+	private File store(File file, SegmentBank bank) throws Exception {
+		File written = folder.newFile();
+		try (OutputStream output = new FileOutputStream(written)) {
+			bank.store(output);
+		}
+		Files.move(written.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		return file;
+	}
+
+	private List<String> tokenize(SegmentBank bank, String text) throws Exception {
+		JCas cas = Tests.createCas(text);
+		Tests.getLexer(bank).process(cas);
+		return Tests.spans(cas);
+	}
+
+	@Test
+	public void reloadsAChangedBankKeepingSnapshots() throws Exception {
+		String text = "Il est allé à la mer.";
+		File file = store(folder.newFile("reloaded.xml"), bank);
+		SegmentBankResource resource = load(file);
+		SegmentBank snapshot = resource.snapshot();
+		assertThat(resource.getVersion()).isEqualTo(1);
+		assertThat(resource.reload()).isFalse();
+		assertThat(tokenize(resource, text)).doesNotContain("12-20");
+		store(file, Tests.extendBank("compound", "à la mer"));
+		assertThat(resource.reload()).isTrue();
+		assertThat(resource.getVersion()).isEqualTo(2);
+		assertThat(resource.getReloadTimeNanos()).isPositive();
+		assertThat(tokenize(resource, text)).contains("12-20");
+		assertThat(tokenize(snapshot, text)).doesNotContain("12-20");
+	}
+
+	@Test
+	public void keepsTheLatestBankOfALocation() throws Exception {
+		File file = store(folder.newFile("latest.xml"), Tests.createBank("compound", "a b"));
+		SegmentBankResource resource = load(file);
+		for (int version = 0; version < 10; version++) {
+			store(file, Tests.createBank("compound", "a b", "c " + version));
+			assertThat(resource.reload()).isTrue();
+		}
+		List<CompiledSegmentBank> banks = new ArrayList<>();
+		for (CompiledSegmentBank compiled : SegmentBankRegistry.banks()) {
+			if (file.toURI().equals(compiled.getUri())) {
+				banks.add(compiled);
+			}
+		}
+		assertThat(banks).containsExactly(resource.getCompiledBank());
+	}
+
+	@Test
+	public void keepsTheBankWhenTheReloadFails() throws Exception {
+		File file = store(folder.newFile("broken.xml"), bank);
+		SegmentBankResource resource = load(file);
+		CompiledSegmentBank loaded = resource.getCompiledBank();
+		Files.write(file.toPath(), "<segments>".getBytes(StandardCharsets.UTF_8));
+		try {
+			resource.reload();
+			fail("reloaded a malformed bank");
+		} catch (IOException e) {
+			assertThat(resource.getCompiledBank()).isSameAs(loaded);
+			assertThat(resource.getVersion()).isEqualTo(1);
+		}
+	}
+
+	@Test
+	public void reloadsAWatchedBankInTheBackground() throws Exception {
+		File file = store(folder.newFile("watched.xml"), bank);
+		SegmentBankResource resource = load(file);
+		resource.watch();
+		try {
+			store(file, Tests.extendBank("compound", "à la mer"));
+			long deadline = System.currentTimeMillis() + 30000;
+			while (resource.getVersion() == 1 && System.currentTimeMillis() < deadline) {
+				Thread.sleep(20);
+			}
+			assertThat(resource.getVersion()).isEqualTo(2);
+			assertThat(tokenize(resource, "Il est allé à la mer.")).contains("12-20");
+		} finally {
+			resource.unwatch();
+		}
+		assertThat(resource.isWatched()).isFalse();
+	}
+
+	@Test
+	public void loadsLanguageBanksOnFirstUse() throws Exception {
+		File english = store(folder.newFile("english.xml"), Tests.createBank("compound", "of course"));
+		LanguageBanks banks = LanguageBanks.parse("en=" + english.getPath(), "de=" + new File(folder.getRoot(), "missing.xml"));
+		assertThat(banks.getLanguages()).containsExactly("en", "de");
+		assertThat(banks.isLoaded("en")).isFalse();
+		SegmentBank bank = banks.get("en-US");
+		assertThat(bank.getAutomaton("compound")).isNotNull();
+		assertThat(banks.get("EN")).isSameAs(bank);
+		assertThat(banks.isLoaded("en")).isTrue();
+		assertThat(banks.isLoaded("de")).isFalse();
+		assertThat(banks.get("it")).isNull();
+		assertThat(banks.get(null)).isNull();
+	}
+
+	@Test
+	public void locatesLanguageBanksByPathOrUrl() throws Exception {
+		File versioned = store(new File(folder.newFolder("banks"), "fr:v2 (1).xml"), Tests.createBank("compound", "à la"));
+		File english = store(folder.newFile("english.xml"), Tests.createBank("compound", "of course"));
+		LanguageBanks banks = LanguageBanks.parse("fr=" + versioned.getPath(), "en=" + english.toURI());
+		assertThat(banks.get("fr").getAutomaton("compound")).isNotNull();
+		assertThat(banks.get("en").getAutomaton("compound")).isNotNull();
+	}
+
+	@Test
+	public void servesGeneratedTreesWhenEnabled() throws Exception {
+		assertThat(bank.getGeneratedTree("final")).isSameAs(bank.getCharTree("final"));
+		System.setProperty(GeneratedTree.PROPERTY, "true");
+		try {
+			SegmentBankResource generated = Tests.extendBank("compound", "à la générée");
+			assertThat(bank.getGeneratedTree("compound")).isSameAs(bank.getCharTree("compound"));
+			assertThat(generated.getGeneratedTree("final")).isInstanceOf(GeneratedTree.class);
+			assertThat(generated.getGeneratedTree("compound")).isInstanceOf(GeneratedTree.class);
+			assertThat(generated.getGeneratedTree("unknown")).isNull();
+			assertSameTokens(generated);
+		} finally {
+			System.clearProperty(GeneratedTree.PROPERTY);
+		}
+	}
+
+	@Test
+	public void compilesOnceUnderConcurrentLoads() throws Exception {
+		File file = folder.newFile("bank.xml");
+		try (OutputStream output = new FileOutputStream(file)) {
+			bank.store(output);
+		}
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<SegmentBankResource>> loads = new ArrayList<>();
+			for (int index = 0; index < 32; index++) {
+				loads.add(executor.submit(() -> load(file)));
+			}
+			CompiledSegmentBank shared = loads.get(0).get().getCompiledBank();
+			for (Future<SegmentBankResource> load : loads) {
+				assertThat(load.get().getCompiledBank()).isSameAs(shared);
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+}
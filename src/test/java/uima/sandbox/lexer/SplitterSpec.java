@@ -0,0 +1,190 @@
+package uima.sandbox.lexer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.FileInputStream;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import uima.sandbox.lexer.core.Splitter;
+import uima.sandbox.lexer.core.Tokenizer;
+import uima.sandbox.lexer.models.CharTree;
+import uima.sandbox.lexer.models.Spans;
+import uima.sandbox.lexer.resources.SegmentBankResource;
+
+public class SplitterSpec {
+
+	/*
+	 * Tokens splitting into as many segments as they have chars, or
+	 * rechecking a long abbreviation at each segment.
+	 */
+	private static final String[][] ADVERSARIAL = {
+			{ "(", "" }, { ")", "" }, { "!", "" }, { "-", "" }, { "«", "»" }, { "d'", "" }, { "(", ")" },
+			{ "A.", ")" }, { "Ab.", "!" }, { "M.", "" }, { "(M.", "" }, { "-t-il", "" }, { "l'", "-t-il" } };
+
+	private SegmentBankResource bank;
+
+	private Splitter splitter;
+
+	@Before
+	public void setup() throws Exception {
+		bank = new SegmentBankResource();
+		bank.load(new FileInputStream(Tests.FRENCH_BANK.toString()));
+		splitter = new Splitter(bank.getCharTree("initial"), bank.getCharTree("final"), bank.getCharTree("abbreviation"));
+	}
+
+	/*
+	 * A text counting the chars read from it, the work of a scan being
+	 * proportional to its reads.
+	 */
+	private static class Counting implements CharSequence {
+
+		private final String text;
+
+		private long reads;
+
+		Counting(String text) {
+			this.text = text;
+		}
+
+		@Override
+		public char charAt(int index) {
+			this.reads++;
+			return this.text.charAt(index);
+		}
+
+		@Override
+		public int length() {
+			return this.text.length();
+		}
+
+		@Override
+		public CharSequence subSequence(int begin, int end) {
+			return this.text.subSequence(begin, end);
+		}
+
+		@Override
+		public String toString() {
+			return this.text;
+		}
+
+	}
+
+	private static String repeat(String left, String right, int count) {
+		StringBuilder builder = new StringBuilder();
+		for (int index = 0; index < count; index++) {
+			builder.append(left);
+		}
+		builder.append("x");
+		for (int index = 0; index < count; index++) {
+			builder.append(right);
+		}
+		return builder.toString();
+	}
+
+	private long split(String token) {
+		Counting text = new Counting(token);
+		Spans spans = new Spans();
+		splitter.split(text, 0, token.length(), spans);
+		return text.reads;
+	}
+
+	@Test
+	public void splitsAdversarialTokensInLinearTime() {
+		for (String[] pattern : ADVERSARIAL) {
+			String small = repeat(pattern[0], pattern[1], 500);
+			String large = repeat(pattern[0], pattern[1], 32000);
+			long perChar = split(small) / small.length();
+			assertThat(split(large) / large.length()).as("reads per char of %s...%s", pattern[0], pattern[1])
+					.isLessThanOrEqualTo(perChar + 1);
+		}
+	}
+
+	@Test
+	public void tokenizesAdversarialTextsInLinearTime() {
+		Tokenizer tokenizer = new Tokenizer(bank);
+		for (String[] pattern : ADVERSARIAL) {
+			String small = repeat(pattern[0], pattern[1], 500) + " à la " + repeat(pattern[0], pattern[1], 500);
+			String large = repeat(pattern[0], pattern[1], 32000) + " à la " + repeat(pattern[0], pattern[1], 32000);
+			Counting text = new Counting(small);
+			tokenizer.tokenize(text, new Spans());
+			long perChar = text.reads / small.length();
+			text = new Counting(large);
+			tokenizer.tokenize(text, new Spans());
+			assertThat(text.reads / large.length()).as("reads per char of %s...%s", pattern[0], pattern[1])
+					.isLessThanOrEqualTo(perChar + 1);
+		}
+	}
+
+	/*
+	 * The splitting as specified, each check scanning the remaining token.
+	 */
+	private static void reference(String token, CharTree prefixes, CharTree suffixes, Spans spans) {
+		int begin = 0;
+		int end = token.length();
+		while (!Splitter.isAbbreviation(token.substring(begin, end))) {
+			int prefix = longest(prefixes, token, begin, end, 1);
+			if (prefix == CharTree.NONE) {
+				break;
+			}
+			spans.span(begin, prefix);
+			begin = prefix;
+		}
+		Spans cuts = new Spans();
+		int cut = end;
+		while (!Splitter.isAbbreviation(token.substring(begin, cut))) {
+			int suffix = longest(suffixes, token, cut - 1, begin - 1, -1);
+			if (suffix == CharTree.NONE) {
+				break;
+			}
+			cuts.span(suffix + 1, cut);
+			cut = suffix + 1;
+		}
+		spans.span(begin, cut);
+		for (int index = cuts.size() - 1; index >= 0; index--) {
+			spans.span(cuts.begin(index), cuts.end(index));
+		}
+	}
+
+	/*
+	 * The offset after the longest segment read from one offset towards
+	 * another, leaving at least one char, walking by a step of 1 or -1.
+	 */
+	private static int longest(CharTree tree, String token, int from, int to, int step) {
+		int found = CharTree.NONE;
+		int state = tree.root();
+		for (int index = from; index != to - step; index += step) {
+			state = tree.getFolded(state, token.charAt(index));
+			if (state == CharTree.NONE) {
+				break;
+			} else if (tree.leaf(state)) {
+				found = index + step;
+			}
+		}
+		return found;
+	}
+
+	@Test
+	public void splitsLikeTheScanningChecks() {
+		String alphabet = "AMbdl.'()!-\r\n";
+		CharTree prefixes = bank.getCharTree("initial");
+		CharTree suffixes = bank.getCharTree("final");
+		Splitter splitter = new Splitter(prefixes, suffixes);
+		Random random = new Random(42);
+		for (int count = 0; count < 100000; count++) {
+			StringBuilder token = new StringBuilder();
+			int length = 1 + random.nextInt(12);
+			for (int index = 0; index < length; index++) {
+				token.append(alphabet.charAt(random.nextInt(alphabet.length())));
+			}
+			Spans expected = new Spans();
+			reference(token.toString(), prefixes, suffixes, expected);
+			Spans actual = new Spans();
+			splitter.split(token, 0, length, actual);
+			assertThat(actual.toString()).as("split of %s", token).isEqualTo(expected.toString());
+		}
+	}
+
+}
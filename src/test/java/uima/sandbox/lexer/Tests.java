@@ -1,5 +1,6 @@
 package uima.sandbox.lexer;
 
+import java.io.ByteArrayInputStream;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
@@ -7,8 +8,12 @@ import java.lang.reflect.Field;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.apache.uima.UIMAException;
+import org.apache.uima.cas.Type;
+import org.apache.uima.cas.text.AnnotationFS;
 import org.apache.uima.fit.factory.JCasFactory;
 import org.apache.uima.fit.factory.TypeSystemDescriptionFactory;
 import org.apache.uima.jcas.JCas;
@@ -20,6 +25,7 @@ import org.mockito.Mockito;
 import com.google.common.base.Charsets;
 
 import uima.sandbox.lexer.engines.Lexer;
+import uima.sandbox.lexer.resources.SegmentBank;
 import uima.sandbox.lexer.resources.SegmentBankResource;
 
 public class Tests {
@@ -34,20 +40,26 @@ public class Tests {
 
 	public static Lexer getLexer() throws IOException, FileNotFoundException, ResourceInitializationException,
 			NoSuchFieldException, IllegalAccessException {
-		Lexer lexer = new Lexer();
 		SegmentBankResource segmentBankResource = new SegmentBankResource();
 		DataResource data = Mockito.mock(DataResource.class);
 		Mockito.when(data.getInputStream()).thenReturn(new FileInputStream(Tests.FRENCH_BANK.toString()));
 		segmentBankResource.load(data);
-		Field typeField = Lexer.class.getDeclaredField("type");
-		typeField.setAccessible(true);
-		typeField.set(lexer, "fr.univnantes.termsuite.types.WordAnnotation");
-		Field bankField = Lexer.class.getDeclaredField("bank");
-		bankField.setAccessible(true);
-		bankField.set(lexer, segmentBankResource);
+		return getLexer(segmentBankResource);
+	}
+
+	public static Lexer getLexer(SegmentBank segmentBank) throws NoSuchFieldException, IllegalAccessException {
+		Lexer lexer = new Lexer();
+		setParameter(lexer, "type", "fr.univnantes.termsuite.types.WordAnnotation");
+		setParameter(lexer, "bank", segmentBank);
 		return lexer;
 	}
 
+	public static void setParameter(Lexer lexer, String name, Object value) throws NoSuchFieldException, IllegalAccessException {
+		Field field = Lexer.class.getDeclaredField(name);
+		field.setAccessible(true);
+		field.set(lexer, value);
+	}
+
 	public static String readFile(Path path) throws RuntimeException {
 		byte[] encoded;
 		try {
@@ -70,6 +82,45 @@ public class Tests {
 		}
 	}
 
+	/*
+	 * The French bank with some more segments.
+	 */
+	public static SegmentBankResource extendBank(String type, String... values) throws IOException {
+		String xml = new String(Files.readAllBytes(FRENCH_BANK), Charsets.UTF_8);
+		StringBuilder segments = new StringBuilder();
+		for (String value : values) {
+			segments.append("<segment type=\"").append(type).append("\" reverse=\"false\" value=\"")
+				.append(value.replace("&", "&amp;").replace("\"", "&quot;").replace("<", "&lt;"))
+				.append("\" />");
+		}
+		int end = xml.lastIndexOf("</segments>");
+		SegmentBankResource bank = new SegmentBankResource();
+		bank.load(new ByteArrayInputStream((xml.substring(0, end) + segments + xml.substring(end)).getBytes(Charsets.UTF_8)));
+		return bank;
+	}
+
+	public static SegmentBankResource createBank(String type, String... values) throws IOException {
+		StringBuilder xml = new StringBuilder("<segments>");
+		for (String value : values) {
+			xml.append("<segment type=\"").append(type).append("\" reverse=\"false\" value=\"")
+				.append(value.replace("&", "&amp;").replace("\"", "&quot;").replace("<", "&lt;"))
+				.append("\" />");
+		}
+		xml.append("</segments>");
+		SegmentBankResource bank = new SegmentBankResource();
+		bank.load(new ByteArrayInputStream(xml.toString().getBytes(Charsets.UTF_8)));
+		return bank;
+	}
+
+	public static List<String> spans(JCas cas) {
+		List<String> spans = new ArrayList<>();
+		Type type = cas.getTypeSystem().getType("fr.univnantes.termsuite.types.WordAnnotation");
+		for (AnnotationFS annotation : cas.getCas().getAnnotationIndex(type)) {
+			spans.add(annotation.getBegin() + "-" + annotation.getEnd());
+		}
+		return spans;
+	}
+
 	public static JCas createCas(String string) throws UIMAException {
 		JCas cas = JCasFactory.createJCas(getTermSuiteTypeSystem());
 		cas.setDocumentText(string);
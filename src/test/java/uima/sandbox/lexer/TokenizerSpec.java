@@ -0,0 +1,114 @@
+package uima.sandbox.lexer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.Random;
+
+import org.apache.uima.jcas.JCas;
+import org.junit.Before;
+import org.junit.Test;
+
+import uima.sandbox.lexer.core.IncrementalTokenizer;
+import uima.sandbox.lexer.core.Tokenizer;
+import uima.sandbox.lexer.models.SpanDelta;
+import uima.sandbox.lexer.models.Spans;
+import uima.sandbox.lexer.resources.SegmentBankResource;
+
+public class TokenizerSpec {
+
+	private SegmentBankResource bank;
+
+	private String text;
+
+	@Before
+	public void setup() throws Exception {
+		bank = new SegmentBankResource();
+		bank.load(new FileInputStream(Tests.FRENCH_BANK.toString()));
+		text = Tests.readFile(Tests.DOCS.resolve("we-fr-100k.txt"));
+	}
+
+	/*
+	 * Reads a few chars at a time, as sockets and pipes do.
+	 */
+	private static Reader trickle(String text, long seed) {
+		Random random = new Random(seed);
+		return new StringReader(text) {
+			@Override
+			public int read(char[] buffer, int offset, int length) throws IOException {
+				return super.read(buffer, offset, Integer.min(length, 1 + random.nextInt(7)));
+			}
+		};
+	}
+
+	@Test
+	public void producesTheTokensOfTheLexer() throws Exception {
+		JCas cas = Tests.createCas(text);
+		Tests.getLexer(bank).process(cas);
+		Spans spans = new Spans();
+		new Tokenizer(bank).tokenize(text, spans);
+		assertThat(spans.toString()).isEqualTo(Tests.spans(cas).toString());
+	}
+
+	@Test
+	public void tokenizesAStreamLikeItsText() throws Exception {
+		Tokenizer tokenizer = new Tokenizer(bank);
+		Spans expected = new Spans();
+		tokenizer.tokenize(text, expected);
+		int compounds = tokenizer.getCompoundCount();
+		Spans actual = new Spans();
+		tokenizer.tokenize(trickle(text, 42), actual);
+		assertThat(actual.toString()).isEqualTo(expected.toString());
+		assertThat(tokenizer.getCompoundCount()).isEqualTo(compounds).isPositive();
+	}
+
+	@Test
+	public void retokenizesEditsLikeTheWholeText() throws Exception {
+		String[] snippets = { " ", "\n", "c'est-à-dire", "à la", " mer, ", "-t-il", "(", "M.", "l'", "aujourd'hui" };
+		IncrementalTokenizer incremental = new IncrementalTokenizer(bank);
+		Tokenizer tokenizer = new Tokenizer(bank);
+		String edited = text.substring(0, 20000);
+		Spans spans = new Spans();
+		tokenizer.tokenize(edited, spans);
+		Random random = new Random(42);
+		int window = 0;
+		for (int edit = 0; edit < 500; edit++) {
+			int offset = random.nextInt(edited.length() + 1);
+			int removed = Integer.min(random.nextInt(12), edited.length() - offset);
+			String inserted = random.nextBoolean() ? snippets[random.nextInt(snippets.length)] : "";
+			edited = edited.substring(0, offset) + inserted + edited.substring(offset + removed);
+			SpanDelta delta = incremental.retokenize(edited, spans, offset, removed, inserted.length());
+			spans = delta.apply(spans);
+			Spans expected = new Spans();
+			tokenizer.tokenize(edited, expected);
+			assertThat(spans.toString()).as("edit %d at %d", edit, offset).isEqualTo(expected.toString());
+			window += delta.getTo() - delta.getFrom();
+		}
+		assertThat(window / 500).isLessThan(10);
+	}
+
+	@Test
+	public void tokenizesAStreamWithLongTokensAndCompounds() throws Exception {
+		StringBuilder builder = new StringBuilder();
+		for (int index = 0; index < 2000; index++) {
+			builder.append(index % 7 == 0 ? "c'est-à-dire, " : "mot ");
+			if (index % 500 == 0) {
+				for (int length = 0; length < 20000; length++) {
+					builder.append((char) ('a' + length % 26));
+				}
+				builder.append("-t-il ");
+			}
+		}
+		String text = builder.toString();
+		Tokenizer tokenizer = new Tokenizer(Tests.createBank("compound", "mot mot mot", "c'est-à-dire", "à-dire, mot"));
+		Spans expected = new Spans();
+		tokenizer.tokenize(text, expected);
+		Spans actual = new Spans();
+		tokenizer.tokenize(trickle(text, 7), actual);
+		assertThat(actual.toString()).isEqualTo(expected.toString());
+	}
+
+}
@@ -0,0 +1,61 @@
+package uima.sandbox.lexer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import uima.sandbox.lexer.core.Tokenizer;
+import uima.sandbox.lexer.core.WhitespaceScanner;
+import uima.sandbox.lexer.models.Spans;
+
+public class WhitespaceScannerSpec {
+
+	private static final String CHARS = "abcdé’«» \t\n\r\u000B\u001C\u001F\u0000\u0008       　∂";
+
+	private void assertScansLikeTheTokenizer(String text) {
+		Spans expected = new Spans();
+		new Tokenizer(null, null, null).tokenize(text, expected);
+		Spans scalar = new Spans();
+		WhitespaceScanner.scalar().scan(text.toCharArray(), 0, text.length(), scalar);
+		Spans actual = new Spans();
+		WhitespaceScanner.getInstance().scan(text.toCharArray(), 0, text.length(), actual);
+		Spans scalarText = new Spans();
+		WhitespaceScanner.scalar().scan(text, 0, text.length(), scalarText);
+		Spans actualText = new Spans();
+		WhitespaceScanner.getInstance().scan(text, 0, text.length(), actualText);
+		assertThat(scalar.toString()).isEqualTo(expected.toString());
+		assertThat(actual.toString()).isEqualTo(expected.toString());
+		assertThat(scalarText.toString()).isEqualTo(expected.toString());
+		assertThat(actualText.toString()).isEqualTo(expected.toString());
+	}
+
+	@Test
+	public void scansTheCorpus() throws Exception {
+		assertScansLikeTheTokenizer(Tests.readFile(Tests.DOCS.resolve("we-fr-100k.txt")));
+	}
+
+	@Test
+	public void scansAnyWhitespace() throws Exception {
+		Random random = new Random(42);
+		for (int length = 0; length < 300; length++) {
+			StringBuilder text = new StringBuilder();
+			for (int index = 0; index < length; index++) {
+				text.append(CHARS.charAt(random.nextInt(CHARS.length())));
+			}
+			assertScansLikeTheTokenizer(text.toString());
+		}
+	}
+
+	@Test
+	public void scansBetweenOffsets() throws Exception {
+		Spans spans = new Spans();
+		WhitespaceScanner.getInstance().scan("  ab cd  ef ".toCharArray(), 3, 10, spans);
+		assertThat(spans.toString()).isEqualTo("[3-4, 5-7, 9-10]");
+		spans.clear();
+		WhitespaceScanner.getInstance().scan("  ab cd  ef ", 3, 10, spans);
+		assertThat(spans.toString()).isEqualTo("[3-4, 5-7, 9-10]");
+	}
+
+}
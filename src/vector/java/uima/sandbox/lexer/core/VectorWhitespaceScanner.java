@@ -0,0 +1,112 @@
+package uima.sandbox.lexer.core;
+
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+import uima.sandbox.lexer.models.SpanHandler;
+
+/**
+ * A whitespace scanner classifying a vector of chars at a time.
+ *
+ * The whitespace chars of a block are computed as a bit mask with a few
+ * comparisons, the ASCII ones exactly, so that runs are delimited by
+ * jumping from one transition of the mask to the next, whatever their
+ * length. The rare blocks holding other control chars or chars from
+ * U+1680 on, where the Unicode separators lie, are classified one char at
+ * a time against the char classes.
+ *
+ * Compiled apart from the other classes, with Java 17 or later, and only
+ * loaded by {@link WhitespaceScanner} when the vector API is available.
+ * On the 100k French corpus, it delimits tokens twice as fast as the
+ * scalar scanner on Java 21 with AVX-512, but slower on Java 17.
+ */
+final class VectorWhitespaceScanner extends WhitespaceScanner {
+
+	private static final VectorSpecies<Short> SPECIES = ShortVector.SPECIES_PREFERRED;
+
+	private static final int LANES = SPECIES.length();
+
+	private static final long LANE_MASK = LANES == 64 ? -1L : (1L << LANES) - 1;
+
+	@Override
+	public void scan(char[] chars, int from, int to, SpanHandler handler) {
+		int begin = -1;
+		int index = from;
+		int bound = from + SPECIES.loopBound(to - from);
+		for (; index < bound; index += LANES) {
+			long whitespaces = this.whitespaces(chars, index);
+			int lane = 0;
+			while (lane < LANES) {
+				if (begin < 0) {
+					long rest = ~whitespaces & LANE_MASK & (-1L << lane);
+					if (rest == 0) {
+						break;
+					}
+					lane = Long.numberOfTrailingZeros(rest);
+					begin = index + lane;
+				} else {
+					long rest = whitespaces & (-1L << lane);
+					if (rest == 0) {
+						break;
+					}
+					lane = Long.numberOfTrailingZeros(rest);
+					handler.span(begin, index + lane);
+					begin = -1;
+				}
+			}
+		}
+		for (; index < to; index++) {
+			if (CharClasses.isWhitespace(chars[index])) {
+				if (begin >= 0) {
+					handler.span(begin, index);
+					begin = -1;
+				}
+			} else if (begin < 0) {
+				begin = index;
+			}
+		}
+		if (begin >= 0) {
+			handler.span(begin, to);
+		}
+	}
+
+	@Override
+	public void scan(CharSequence text, int from, int to, SpanHandler handler) {
+		char[] chars = new char[to - from];
+		if (text instanceof String) {
+			((String) text).getChars(from, to, chars, 0);
+		} else {
+			for (int index = from; index < to; index++) {
+				chars[index - from] = text.charAt(index);
+			}
+		}
+		if (from == 0) {
+			this.scan(chars, 0, chars.length, handler);
+		} else {
+			this.scan(chars, 0, chars.length, (begin, end) -> handler.span(begin + from, end + from));
+		}
+	}
+
+	/*
+	 * The ASCII whitespaces are \t to \r, then \u001C to the space.
+	 */
+	private long whitespaces(char[] chars, int index) {
+		ShortVector block = ShortVector.fromCharArray(SPECIES, chars, index);
+		VectorMask<Short> controls = block.compare(VectorOperators.UNSIGNED_LE, (short) 0x20);
+		VectorMask<Short> others = block.compare(VectorOperators.UNSIGNED_GE, (short) 0x1680);
+		VectorMask<Short> whitespaces = block.sub((short) 0x09).compare(VectorOperators.UNSIGNED_LE, (short) 4)
+				.or(block.sub((short) 0x1C).compare(VectorOperators.UNSIGNED_LE, (short) 4));
+		if (controls.andNot(whitespaces).or(others).anyTrue()) {
+			long mask = 0;
+			for (int lane = 0; lane < LANES; lane++) {
+				if (CharClasses.isWhitespace(chars[index + lane])) {
+					mask |= 1L << lane;
+				}
+			}
+			return mask;
+		}
+		return whitespaces.toLong();
+	}
+
+}